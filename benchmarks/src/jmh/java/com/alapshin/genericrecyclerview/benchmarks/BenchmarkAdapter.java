@@ -0,0 +1,38 @@
+package com.alapshin.genericrecyclerview.benchmarks;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import com.alapshin.genericrecyclerview.ItemProvider;
+
+/**
+ * Adapter receiving notifications of providers and selection managers without creating views
+ */
+final class BenchmarkAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+    private final ItemProvider<?> itemProvider;
+    private int itemCount;
+
+    BenchmarkAdapter(ItemProvider<?> itemProvider) {
+        this.itemProvider = itemProvider;
+    }
+
+    BenchmarkAdapter(int itemCount) {
+        this.itemProvider = null;
+        this.itemCount = itemCount;
+    }
+
+    @Override
+    public int getItemCount() {
+        return itemProvider != null ? itemProvider.getItemCount() : itemCount;
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,49 @@
+package com.alapshin.genericrecyclerview.benchmarks;
+
+import com.alapshin.genericrecyclerview.Item;
+
+/**
+ * Immutable item used by benchmarks
+ */
+final class BenchmarkItem implements Item {
+    private final int id;
+    private final int type;
+    private final int content;
+
+    BenchmarkItem(int id, int type, int content) {
+        this.id = id;
+        this.type = type;
+        this.content = content;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public int type() {
+        return type;
+    }
+
+    BenchmarkItem withContent(int content) {
+        return new BenchmarkItem(id, type, content);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BenchmarkItem)) {
+            return false;
+        }
+        BenchmarkItem item = (BenchmarkItem) o;
+        return id == item.id && type == item.type && content == item.content;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * id + type) + content;
+    }
+}
@@ -0,0 +1,104 @@
+package com.alapshin.genericrecyclerview.benchmarks;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import com.alapshin.genericrecyclerview.ItemTypeViewHolderDelegate;
+import com.alapshin.genericrecyclerview.ViewHolderDelegate;
+import com.alapshin.genericrecyclerview.ViewHolderDelegateManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Measures {@link ViewHolderDelegateManager#getItemViewType(com.alapshin.genericrecyclerview.Item)}
+ * for delegates matching items by predicate and by declared item type
+ */
+@State(Scope.Thread)
+public class DelegateDispatchBenchmark {
+    private static final int ITEM_COUNT = 1024;
+
+    @Param({"1", "4", "16", "64"})
+    int delegateCount;
+
+    @Param({"predicate", "itemType"})
+    String delegateKind;
+
+    private ViewHolderDelegateManager<BenchmarkItem, RecyclerView.ViewHolder> manager;
+    private BenchmarkItem[] items;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        manager = new ViewHolderDelegateManager<>();
+        for (int type = 0; type < delegateCount; type++) {
+            if ("itemType".equals(delegateKind)) {
+                manager.addDelegate(new TypeDelegate(type));
+            } else {
+                manager.addDelegate(new PredicateDelegate(type));
+            }
+        }
+
+        Random random = new Random(42);
+        items = new BenchmarkItem[ITEM_COUNT];
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            items[i] = new BenchmarkItem(i, random.nextInt(delegateCount), 0);
+        }
+    }
+
+    @Benchmark
+    public int getItemViewType() {
+        index = (index + 1) & (ITEM_COUNT - 1);
+        return manager.getItemViewType(items[index]);
+    }
+
+    private static class PredicateDelegate implements ViewHolderDelegate<BenchmarkItem, RecyclerView.ViewHolder> {
+        private final int type;
+
+        PredicateDelegate(int type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean isForViewType(@NonNull BenchmarkItem item) {
+            return item.type() == type;
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, @NonNull BenchmarkItem item) {
+        }
+
+        @Override
+        public Class<RecyclerView.ViewHolder> getViewHolderType() {
+            return RecyclerView.ViewHolder.class;
+        }
+    }
+
+    private static final class TypeDelegate extends PredicateDelegate
+            implements ItemTypeViewHolderDelegate<BenchmarkItem, RecyclerView.ViewHolder> {
+        private final int[] itemTypes;
+
+        TypeDelegate(int type) {
+            super(type);
+            this.itemTypes = new int[] {type};
+        }
+
+        @NonNull
+        @Override
+        public int[] getItemTypes() {
+            return itemTypes;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.alapshin.genericrecyclerview.benchmarks;
+
+import com.alapshin.genericrecyclerview.DefaultItemProvider;
+import com.alapshin.genericrecyclerview.IdDiffStrategy;
+import com.alapshin.genericrecyclerview.MyersDiffStrategy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DefaultItemProvider#setItems(List)} diffing of current items against new items.
+ * <p>
+ * New items differ from current items by given ratio of items: half of them have changed content,
+ * a quarter is removed and a quarter is inserted. Difference is calculated with Myers or
+ * id-keyed diff strategy.
+ * </p>
+ * <p>
+ * Provider alternates between current and new items, so every invocation calculates difference of
+ * the same size without per-invocation setup. Myers strategy takes time proportional to size times
+ * number of changes, so sizes are limited to 100000. Id-keyed strategy can be measured on larger
+ * lists with {@code -p size=1000000 -p strategy=id}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DiffBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int size;
+
+    @Param({"0.001", "0.01", "0.1"})
+    double changeRatio;
+
+    @Param({"myers", "id"})
+    String strategy;
+
+    private List<BenchmarkItem> oldItems;
+    private List<BenchmarkItem> newItems;
+    private DefaultItemProvider<BenchmarkItem> provider;
+    /**
+     * Items passed to provider by the next invocation
+     */
+    private List<BenchmarkItem> nextItems;
+
+    @Setup(Level.Trial)
+    public void setUpItems() {
+        Random random = new Random(42);
+        oldItems = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            oldItems.add(new BenchmarkItem(i, 0, 0));
+        }
+
+        newItems = new ArrayList<>(size);
+        int nextId = size;
+        for (BenchmarkItem item : oldItems) {
+            if (random.nextDouble() >= changeRatio) {
+                newItems.add(item);
+                continue;
+            }
+            switch (random.nextInt(4)) {
+                case 0:
+                    // Removed
+                    break;
+                case 1:
+                    newItems.add(new BenchmarkItem(nextId++, 0, 0));
+                    newItems.add(item);
+                    break;
+                default:
+                    newItems.add(item.withContent(1));
+                    break;
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpProvider() {
+        provider = new DefaultItemProvider<>();
+        provider.setItems(oldItems);
+        provider.setDiffStrategy("id".equals(strategy) ? new IdDiffStrategy() : new MyersDiffStrategy());
+        provider.setAdapter(new BenchmarkAdapter(provider));
+        nextItems = newItems;
+    }
+
+    @Benchmark
+    public DefaultItemProvider<BenchmarkItem> setItems() {
+        List<BenchmarkItem> items = nextItems;
+        nextItems = items == newItems ? oldItems : newItems;
+        provider.setItems(items);
+        return provider;
+    }
+}
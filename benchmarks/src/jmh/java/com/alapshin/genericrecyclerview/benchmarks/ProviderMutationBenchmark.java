@@ -0,0 +1,82 @@
+package com.alapshin.genericrecyclerview.benchmarks;
+
+import com.alapshin.genericrecyclerview.DefaultItemProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures single item and batched insertions and removals of {@link DefaultItemProvider}
+ * attached to adapter. Every invocation inserts and removes items, so provider size is constant.
+ */
+@State(Scope.Thread)
+public class ProviderMutationBenchmark {
+    private static final int BATCH_SIZE = 16;
+
+    @Param({"1000", "100000"})
+    int size;
+
+    @Param({"head", "middle", "tail"})
+    String location;
+
+    private DefaultItemProvider<BenchmarkItem> provider;
+    private BenchmarkItem item;
+    private List<BenchmarkItem> batch;
+    private int position;
+
+    @Setup
+    public void setUp() {
+        List<BenchmarkItem> items = new ArrayList<>(size + BATCH_SIZE);
+        for (int i = 0; i < size; i++) {
+            items.add(new BenchmarkItem(i, 0, 0));
+        }
+        provider = new DefaultItemProvider<>();
+        provider.setItems(items);
+        provider.setAdapter(new BenchmarkAdapter(provider));
+
+        item = new BenchmarkItem(size, 0, 0);
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new BenchmarkItem(size + 1 + i, 0, 0));
+        }
+        if ("head".equals(location)) {
+            position = 0;
+        } else if ("middle".equals(location)) {
+            position = size / 2;
+        } else {
+            position = size;
+        }
+    }
+
+    @Benchmark
+    public void insertRemoveItem() {
+        provider.addItem(position, item);
+        provider.removeItem(position);
+    }
+
+    @Benchmark
+    public void insertRemoveItems() {
+        provider.addItems(position, batch);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            provider.removeItem(position);
+        }
+    }
+
+    @Benchmark
+    public void insertRemoveItemsBatched() {
+        provider.beginBatch();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            provider.addItem(position + i, batch.get(i));
+        }
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            provider.removeItem(position);
+        }
+        provider.commit();
+    }
+}
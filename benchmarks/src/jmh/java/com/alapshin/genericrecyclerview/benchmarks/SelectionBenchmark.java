@@ -0,0 +1,77 @@
+package com.alapshin.genericrecyclerview.benchmarks;
+
+import com.alapshin.genericrecyclerview.BitSetSelectionManager;
+import com.alapshin.genericrecyclerview.DefaultSelectionManager;
+import com.alapshin.genericrecyclerview.SelectionManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Measures set, toggle and lookup operations of selection managers
+ * with sparse and dense selections
+ */
+@State(Scope.Thread)
+public class SelectionBenchmark {
+    private static final int POSITION_COUNT = 1 << 16;
+
+    @Param({"default", "bitset"})
+    String manager;
+
+    @Param({"0.01", "0.5"})
+    double selectedRatio;
+
+    private SelectionManager selectionManager;
+    private int[] positions;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        selectionManager = "bitset".equals(manager) ? new BitSetSelectionManager() : new DefaultSelectionManager();
+        selectionManager.setAdapter(new BenchmarkAdapter(POSITION_COUNT));
+        selectionManager.setChoiceMode(SelectionManager.ChoiceMode.MULTI);
+
+        Random random = new Random(42);
+        for (int i = 0; i < POSITION_COUNT; i++) {
+            if (random.nextDouble() < selectedRatio) {
+                selectionManager.setSelection(i, true);
+            }
+        }
+        positions = new int[POSITION_COUNT];
+        for (int i = 0; i < POSITION_COUNT; i++) {
+            positions[i] = random.nextInt(POSITION_COUNT);
+        }
+    }
+
+    @Benchmark
+    public boolean isSelectedSequential() {
+        index = (index + 1) & (POSITION_COUNT - 1);
+        return selectionManager.isSelected(index);
+    }
+
+    @Benchmark
+    public boolean isSelectedRandom() {
+        index = (index + 1) & (POSITION_COUNT - 1);
+        return selectionManager.isSelected(positions[index]);
+    }
+
+    @Benchmark
+    public void toggleRandom() {
+        index = (index + 1) & (POSITION_COUNT - 1);
+        selectionManager.toggleSelection(positions[index]);
+    }
+
+    @Benchmark
+    public void selectDeselectRandom() {
+        index = (index + 1) & (POSITION_COUNT - 1);
+        int position = positions[index];
+        boolean selected = selectionManager.isSelected(position);
+        selectionManager.setSelection(position, !selected);
+        selectionManager.setSelection(position, selected);
+    }
+}
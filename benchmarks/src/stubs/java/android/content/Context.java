@@ -0,0 +1,7 @@
+package android.content;
+
+/**
+ * Stub of Android context for running library code on JVM
+ */
+public abstract class Context {
+}
@@ -0,0 +1,24 @@
+package android.os;
+
+/**
+ * Stub of Android build information for running library code on JVM
+ */
+public final class Build {
+    private Build() {
+    }
+
+    public static final class VERSION {
+        public static final int SDK_INT = VERSION_CODES.O_MR1;
+
+        private VERSION() {
+        }
+    }
+
+    public static final class VERSION_CODES {
+        public static final int JELLY_BEAN = 16;
+        public static final int O_MR1 = 27;
+
+        private VERSION_CODES() {
+        }
+    }
+}
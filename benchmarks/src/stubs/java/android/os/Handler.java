@@ -0,0 +1,28 @@
+package android.os;
+
+/**
+ * Stub of Android handler for running library code on JVM.
+ * <p>
+ * Benchmarks run on a single thread without message loop, so posted callbacks are run
+ * immediately. Tests can run main thread message loop by {@link Looper#prepareMainLooper()} and
+ * {@link Looper#loop()}, then callbacks are queued and run by the loop.
+ * </p>
+ */
+public class Handler {
+    public Handler() {
+    }
+
+    public Handler(Looper looper) {
+    }
+
+    public final boolean post(Runnable r) {
+        if (!Looper.mainQueue().enqueue(r)) {
+            r.run();
+        }
+        return true;
+    }
+
+    public final void removeCallbacks(Runnable r) {
+        Looper.mainQueue().remove(r);
+    }
+}
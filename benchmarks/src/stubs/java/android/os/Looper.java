@@ -0,0 +1,48 @@
+package android.os;
+
+/**
+ * Stub of Android looper for running library code on JVM.
+ * <p>
+ * Main looper runs messages only after {@link #prepareMainLooper()} is called, until then
+ * messages are run immediately when posted. {@link #loop()} returns after {@link #quit()} and
+ * main looper goes back to running messages immediately.
+ * </p>
+ */
+public final class Looper {
+    private static final Looper MAIN_LOOPER = new Looper();
+    private static final MessageQueue MAIN_QUEUE = new MessageQueue();
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN_LOOPER;
+    }
+
+    public static Looper myLooper() {
+        return MAIN_LOOPER;
+    }
+
+    public static MessageQueue myQueue() {
+        return MAIN_QUEUE;
+    }
+
+    public static void prepareMainLooper() {
+        MAIN_QUEUE.prepare();
+    }
+
+    /**
+     * Runs messages on calling thread until {@link #quit()} is called
+     */
+    public static void loop() {
+        MAIN_QUEUE.loop();
+    }
+
+    public void quit() {
+        MAIN_QUEUE.quit();
+    }
+
+    static MessageQueue mainQueue() {
+        return MAIN_QUEUE;
+    }
+}
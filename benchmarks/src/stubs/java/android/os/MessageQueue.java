@@ -0,0 +1,82 @@
+package android.os;
+
+import java.util.ArrayDeque;
+
+/**
+ * Stub of Android message queue for running library code on JVM.
+ * <p>
+ * Messages are queued only while main looper is prepared, otherwise they are run immediately.
+ * Idle handlers are never called.
+ * </p>
+ */
+public final class MessageQueue {
+    public interface IdleHandler {
+        boolean queueIdle();
+    }
+
+    private final ArrayDeque<Runnable> messages = new ArrayDeque<>();
+    private boolean prepared;
+    private boolean quitting;
+
+    MessageQueue() {
+    }
+
+    public void addIdleHandler(IdleHandler handler) {
+    }
+
+    public void removeIdleHandler(IdleHandler handler) {
+    }
+
+    synchronized void prepare() {
+        prepared = true;
+        quitting = false;
+    }
+
+    /**
+     * Queues message if looper is prepared
+     *
+     * @return false if message was not queued and must be run immediately
+     */
+    synchronized boolean enqueue(Runnable message) {
+        if (!prepared) {
+            return false;
+        }
+        messages.add(message);
+        notifyAll();
+        return true;
+    }
+
+    synchronized void remove(Runnable message) {
+        while (messages.remove(message)) {
+            // Remove all occurrences
+        }
+    }
+
+    synchronized void quit() {
+        quitting = true;
+        notifyAll();
+    }
+
+    void loop() {
+        while (true) {
+            Runnable message;
+            synchronized (this) {
+                while (messages.isEmpty() && !quitting) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        quitting = true;
+                    }
+                }
+                if (quitting) {
+                    messages.clear();
+                    prepared = false;
+                    return;
+                }
+                message = messages.poll();
+            }
+            message.run();
+        }
+    }
+}
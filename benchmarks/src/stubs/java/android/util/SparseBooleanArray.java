@@ -0,0 +1,86 @@
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * Implementation of Android sparse boolean array for running library code on JVM.
+ * <p>
+ * Like original class it keeps keys in sorted array and uses binary search, so benchmark
+ * results reflect costs of real implementation.
+ * </p>
+ */
+public class SparseBooleanArray {
+    private int[] keys;
+    private boolean[] values;
+    private int size;
+
+    public SparseBooleanArray() {
+        this(10);
+    }
+
+    public SparseBooleanArray(int initialCapacity) {
+        keys = new int[initialCapacity];
+        values = new boolean[initialCapacity];
+    }
+
+    public boolean get(int key) {
+        return get(key, false);
+    }
+
+    public boolean get(int key, boolean valueIfKeyNotFound) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        return i < 0 ? valueIfKeyNotFound : values[i];
+    }
+
+    public void delete(int key) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i >= 0) {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            System.arraycopy(values, i + 1, values, i, size - i - 1);
+            size--;
+        }
+    }
+
+    public void put(int key, boolean value) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i >= 0) {
+            values[i] = value;
+            return;
+        }
+        i = ~i;
+        if (size == keys.length) {
+            int capacity = Math.max(size * 2, 4);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(values, i, values, i + 1, size - i);
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    public void append(int key, boolean value) {
+        put(key, value);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int keyAt(int index) {
+        return keys[index];
+    }
+
+    public boolean valueAt(int index) {
+        return values[index];
+    }
+
+    public int indexOfKey(int key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,40 @@
+package android.view;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Stub of Android choreographer for running library code on JVM.
+ * <p>
+ * Frame callbacks are posted to main thread handler, so benchmarks running without message loop
+ * run them immediately.
+ * </p>
+ */
+public final class Choreographer {
+    private static final Choreographer INSTANCE = new Choreographer();
+
+    public interface FrameCallback {
+        void doFrame(long frameTimeNanos);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private Choreographer() {
+    }
+
+    public static Choreographer getInstance() {
+        return INSTANCE;
+    }
+
+    public void postFrameCallback(final FrameCallback callback) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.doFrame(System.nanoTime());
+            }
+        });
+    }
+
+    public void removeFrameCallback(FrameCallback callback) {
+    }
+}
@@ -0,0 +1,18 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * Stub of Android view for running library code on JVM
+ */
+public class View {
+    private final Context context;
+
+    public View(Context context) {
+        this.context = context;
+    }
+
+    public Context getContext() {
+        return context;
+    }
+}
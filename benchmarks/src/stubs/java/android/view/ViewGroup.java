@@ -0,0 +1,12 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * Stub of Android view group for running library code on JVM
+ */
+public abstract class ViewGroup extends View {
+    public ViewGroup(Context context) {
+        super(context);
+    }
+}
@@ -0,0 +1,210 @@
+package com.alapshin.genericrecyclerview;
+
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Submits modifications from several threads while test thread runs main looper and checks that
+ * provider ends up with items of the same modifications applied sequentially
+ */
+public class ItemMutationQueueTest {
+    private static final int THREAD_COUNT = 4;
+    private static final int OPERATION_COUNT = 2000;
+    private static final long TIMEOUT_MILLIS = 30000;
+
+    private ExecutorService diffExecutor;
+    private DefaultItemProvider<TestItem> provider;
+    private ItemMutationQueue<TestItem> queue;
+
+    /**
+     * Expected items, modified under its own lock together with submission to the queue
+     */
+    private final List<TestItem> model = new ArrayList<>();
+    private int nextId;
+
+    @Before
+    public void setUp() {
+        Looper.prepareMainLooper();
+        diffExecutor = Executors.newFixedThreadPool(2);
+        provider = new DefaultItemProvider<>();
+        // Difference is calculated on executor only if adapter is set
+        provider.setAdapter(new EmptyAdapter());
+        provider.setDiffExecutor(diffExecutor);
+        provider.setDiffStrategy(new IdDiffStrategy());
+        queue = new ItemMutationQueue<>(provider);
+    }
+
+    @After
+    public void tearDown() {
+        Looper.getMainLooper().quit();
+        diffExecutor.shutdownNow();
+    }
+
+    @Test
+    public void appliesConcurrentModificationsInSubmissionOrder() throws InterruptedException {
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            final Random random = new Random(i);
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < OPERATION_COUNT; j++) {
+                        submitRandomMutation(random);
+                    }
+                }
+            });
+            producer.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                @Override
+                public void uncaughtException(Thread t, Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            producers.add(producer);
+        }
+
+        final AtomicBoolean finished = new AtomicBoolean();
+        Thread coordinator = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (Thread producer : producers) {
+                        producer.start();
+                    }
+                    for (Thread producer : producers) {
+                        producer.join();
+                    }
+                    // Applied after all submitted modifications
+                    queue.submit(new ItemMutationQueue.Mutation<TestItem>() {
+                        @Override
+                        public void apply(@NonNull DefaultItemProvider<TestItem> provider) {
+                            finished.set(true);
+                            Looper.getMainLooper().quit();
+                        }
+                    });
+                    Thread.sleep(TIMEOUT_MILLIS);
+                    Looper.getMainLooper().quit();
+                } catch (InterruptedException e) {
+                    // Finished in time
+                }
+            }
+        });
+        coordinator.start();
+        Looper.loop();
+        coordinator.interrupt();
+        coordinator.join();
+
+        assertNull(failure.get());
+        assertTrue("Modifications were not applied in time", finished.get());
+        assertFalse(provider.isUpdatePending());
+        synchronized (model) {
+            assertEquals(model, provider.getItems());
+        }
+    }
+
+    private void submitRandomMutation(Random random) {
+        synchronized (model) {
+            int operation = random.nextInt(100);
+            if (operation < 40 || model.isEmpty()) {
+                TestItem item = new TestItem(nextId++, 0);
+                model.add(item);
+                queue.addItem(item);
+            } else if (operation < 70) {
+                int position = random.nextInt(model.size());
+                TestItem item = new TestItem(model.get(position).id, random.nextInt());
+                model.set(position, item);
+                queue.updateById(item);
+            } else if (operation < 98) {
+                int position = random.nextInt(model.size());
+                queue.removeById(model.remove(position).id);
+            } else {
+                List<TestItem> items = new ArrayList<>();
+                for (int i = 0; i < model.size(); i += 2) {
+                    items.add(model.get(i));
+                }
+                items.add(new TestItem(nextId++, 0));
+                model.clear();
+                model.addAll(items);
+                queue.setItems(items);
+            }
+        }
+    }
+
+    private static final class TestItem implements Item {
+        final int id;
+        final int value;
+
+        TestItem(int id, int value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+
+        @Override
+        public int type() {
+            return 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TestItem)) {
+                return false;
+            }
+            TestItem that = (TestItem) o;
+            return id == that.id && value == that.value;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id + value;
+        }
+
+        @Override
+        public String toString() {
+            return "TestItem{id=" + id + ", value=" + value + "}";
+        }
+    }
+
+    private static final class EmptyAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
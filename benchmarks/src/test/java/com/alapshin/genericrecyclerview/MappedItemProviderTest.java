@@ -0,0 +1,191 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MappedItemProviderTest {
+    private static final int RECORD_SIZE = 16;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("records", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void readsRecords() throws IOException {
+        writeRecords(ByteOrder.BIG_ENDIAN, 5, 0);
+        MappedItemProvider<RecordItem> provider = new MappedItemProvider<>(file, RECORD_SIZE, new Decoder());
+
+        assertEquals(5, provider.getItemCount());
+        assertRecords(provider, 5);
+    }
+
+    @Test
+    public void readsRecordsInLittleEndianOrder() throws IOException {
+        writeRecords(ByteOrder.LITTLE_ENDIAN, 5, 0);
+        MappedItemProvider<RecordItem> provider =
+                new MappedItemProvider<>(file, RECORD_SIZE, ByteOrder.LITTLE_ENDIAN, new Decoder());
+
+        assertRecords(provider, 5);
+    }
+
+    @Test
+    public void readsRecordsAcrossChunks() throws IOException {
+        writeRecords(ByteOrder.BIG_ENDIAN, 10, 0);
+        // Chunk size which is not multiple of record size fits 3 records
+        MappedItemProvider<RecordItem> provider =
+                new MappedItemProvider<>(file, RECORD_SIZE, ByteOrder.BIG_ENDIAN, new Decoder(), 3 * RECORD_SIZE + 5);
+
+        assertEquals(10, provider.getItemCount());
+        assertRecords(provider, 10);
+    }
+
+    @Test
+    public void ignoresIncompleteRecord() throws IOException {
+        writeRecords(ByteOrder.BIG_ENDIAN, 3, RECORD_SIZE - 1);
+        MappedItemProvider<RecordItem> provider =
+                new MappedItemProvider<>(file, RECORD_SIZE, ByteOrder.BIG_ENDIAN, new Decoder(), 2 * RECORD_SIZE);
+
+        assertEquals(3, provider.getItemCount());
+        assertRecords(provider, 3);
+    }
+
+    @Test
+    public void mapsEmptyFile() throws IOException {
+        MappedItemProvider<RecordItem> provider = new MappedItemProvider<>(file, RECORD_SIZE, new Decoder());
+
+        assertEquals(0, provider.getItemCount());
+    }
+
+    @Test
+    public void decodesIntoPassedItem() throws IOException {
+        writeRecords(ByteOrder.BIG_ENDIAN, 2, 0);
+        MappedItemProvider<RecordItem> provider = new MappedItemProvider<>(file, RECORD_SIZE, new Decoder());
+        RecordItem item = new RecordItem();
+
+        assertSame(item, provider.getItem(1, item));
+        assertEquals(101, item.id);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsPositionAfterLastRecord() throws IOException {
+        writeRecords(ByteOrder.BIG_ENDIAN, 2, 0);
+        MappedItemProvider<RecordItem> provider = new MappedItemProvider<>(file, RECORD_SIZE, new Decoder());
+
+        provider.getItemId(2);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsAccessAfterClose() throws IOException {
+        writeRecords(ByteOrder.BIG_ENDIAN, 2, 0);
+        MappedItemProvider<RecordItem> provider = new MappedItemProvider<>(file, RECORD_SIZE, new Decoder());
+        provider.close();
+
+        provider.getItemCount();
+    }
+
+    @Test
+    public void cachesResolvedViewTypes() throws IOException {
+        writeRecords(ByteOrder.BIG_ENDIAN, 1000, 0);
+        MappedItemProvider<RecordItem> provider = new MappedItemProvider<>(file, RECORD_SIZE, new Decoder());
+        CountingResolver resolver = new CountingResolver();
+        provider.setViewTypeResolver(resolver);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(10 + i % 3, provider.getItemViewType(i));
+        }
+        assertEquals(1000, resolver.calls);
+        for (int i = 999; i >= 500; i--) {
+            assertEquals(10 + i % 3, provider.getItemViewType(i));
+        }
+        assertEquals(1000, resolver.calls);
+
+        provider.setViewTypeResolver(resolver);
+        assertEquals(10, provider.getItemViewType(999));
+        assertEquals(1001, resolver.calls);
+    }
+
+    private void writeRecords(ByteOrder order, int count, int extraBytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(count * RECORD_SIZE + extraBytes).order(order);
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(100 + i).putInt(i % 3).putLong(1000000000000L * i);
+        }
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(buffer.array());
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void assertRecords(MappedItemProvider<RecordItem> provider, int count) {
+        for (int i = 0; i < count; i++) {
+            assertEquals(100 + i, provider.getItemId(i));
+            assertEquals(i % 3, provider.getItemType(i));
+            RecordItem item = provider.getItem(i);
+            assertEquals(100 + i, item.id);
+            assertEquals(i % 3, item.type);
+            assertEquals(1000000000000L * i, item.value);
+        }
+    }
+
+    private static final class RecordItem implements Item {
+        int id;
+        int type;
+        long value;
+
+        @Override
+        public int id() {
+            return id;
+        }
+
+        @Override
+        public int type() {
+            return type;
+        }
+    }
+
+    private static final class CountingResolver implements ViewTypeResolver<RecordItem> {
+        int calls;
+
+        @Override
+        public int getItemViewType(@NonNull RecordItem item) {
+            calls++;
+            return 10 + item.type;
+        }
+    }
+
+    private static final class Decoder implements MappedItemProvider.RecordDecoder<RecordItem> {
+        @NonNull
+        @Override
+        public RecordItem createItem() {
+            return new RecordItem();
+        }
+
+        @Override
+        public void decode(@NonNull ByteBuffer buffer, int offset, @NonNull RecordItem item) {
+            item.id = buffer.getInt(offset + MappedItemProvider.ID_OFFSET);
+            item.type = buffer.getInt(offset + MappedItemProvider.TYPE_OFFSET);
+            item.value = buffer.getLong(offset + MappedItemProvider.MIN_RECORD_SIZE);
+        }
+    }
+}
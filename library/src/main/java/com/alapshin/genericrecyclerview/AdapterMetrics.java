@@ -0,0 +1,487 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.ListUpdateCallback;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collector of adapter performance metrics.
+ * <p>
+ * Records per view type create and bind latencies, recycle counts, item view type dispatch
+ * latency, diff durations and update sizes. Metrics are recorded when the same instance is set to
+ * {@link DefaultAdapter#setMetrics(AdapterMetrics)},
+ * {@link ViewHolderDelegateManager#setMetrics(AdapterMetrics)} and
+ * {@link DefaultItemProvider#setMetrics(AdapterMetrics)}.
+ * </p>
+ * <p>
+ * All storage is allocated in constructor, recording uses atomic counters only and never
+ * allocates or locks, so metrics can be recorded from any thread and {@link #snapshot()} can be
+ * taken concurrently with recording. Values are recorded in histograms with power of two buckets.
+ * </p>
+ */
+public final class AdapterMetrics {
+    /**
+     * View type reported for metrics of view types which didn't fit into metrics capacity
+     */
+    public static final int OTHER_VIEW_TYPE = Integer.MIN_VALUE;
+    /**
+     * Number of histogram buckets. Bucket 0 counts zero values, bucket i counts values in range
+     * [2^(i-1), 2^i), the last bucket counts all larger values.
+     */
+    public static final int BUCKET_COUNT = 32;
+
+    private static final int DEFAULT_VIEW_TYPE_CAPACITY = 32;
+
+    /**
+     * Histogram is stored as bucket counts followed by sum of recorded values
+     */
+    private static final int HISTOGRAM_SIZE = BUCKET_COUNT + 1;
+
+    private static final int SLOT_FREE = 0;
+    private static final int SLOT_CLAIMED = 1;
+    private static final int SLOT_READY = 2;
+
+    private final int capacity;
+    /**
+     * Open addressing table of view types, slot at index {@link #capacity} collects other view types
+     */
+    private final AtomicIntegerArray slotStates;
+    private final int[] slotViewTypes;
+
+    private final AtomicLongArray createHistograms;
+    private final AtomicLongArray bindHistograms;
+    private final AtomicLongArray recycleCounts;
+    private final AtomicLongArray failedRecycleCounts;
+
+    private final AtomicLongArray dispatchHistogram = new AtomicLongArray(HISTOGRAM_SIZE);
+    private final AtomicLongArray diffHistogram = new AtomicLongArray(HISTOGRAM_SIZE);
+    private final AtomicLongArray updateSizeHistogram = new AtomicLongArray(HISTOGRAM_SIZE);
+
+    public AdapterMetrics() {
+        this(DEFAULT_VIEW_TYPE_CAPACITY);
+    }
+
+    /**
+     * @param viewTypeCapacity number of view types to collect separate metrics for, metrics of
+     * view types exceeding it are reported under {@link #OTHER_VIEW_TYPE}
+     */
+    public AdapterMetrics(int viewTypeCapacity) {
+        if (viewTypeCapacity <= 0) {
+            throw new IllegalArgumentException("View type capacity must be positive: " + viewTypeCapacity);
+        }
+        int size = Integer.highestOneBit(viewTypeCapacity);
+        capacity = size < viewTypeCapacity ? size << 1 : size;
+
+        slotStates = new AtomicIntegerArray(capacity + 1);
+        slotViewTypes = new int[capacity + 1];
+        slotViewTypes[capacity] = OTHER_VIEW_TYPE;
+        slotStates.set(capacity, SLOT_READY);
+
+        createHistograms = new AtomicLongArray((capacity + 1) * HISTOGRAM_SIZE);
+        bindHistograms = new AtomicLongArray((capacity + 1) * HISTOGRAM_SIZE);
+        recycleCounts = new AtomicLongArray(capacity + 1);
+        failedRecycleCounts = new AtomicLongArray(capacity + 1);
+    }
+
+    /**
+     * Records creation of view holder. Every creation means that there was no view holder of
+     * this view type in recycled view pool.
+     *
+     * @param viewType view type
+     * @param nanos creation duration in nanoseconds
+     */
+    public void recordCreate(int viewType, long nanos) {
+        record(createHistograms, slotOf(viewType) * HISTOGRAM_SIZE, nanos);
+    }
+
+    /**
+     * Records binding of view holder
+     *
+     * @param viewType view type
+     * @param nanos binding duration in nanoseconds
+     */
+    public void recordBind(int viewType, long nanos) {
+        record(bindHistograms, slotOf(viewType) * HISTOGRAM_SIZE, nanos);
+    }
+
+    /**
+     * Records recycling of view holder
+     *
+     * @param viewType view type
+     * @param failed true if view holder couldn't be recycled
+     */
+    public void recordRecycle(int viewType, boolean failed) {
+        (failed ? failedRecycleCounts : recycleCounts).incrementAndGet(slotOf(viewType));
+    }
+
+    /**
+     * Records lookup of item view type
+     *
+     * @param nanos lookup duration in nanoseconds
+     */
+    public void recordDispatch(long nanos) {
+        record(dispatchHistogram, 0, nanos);
+    }
+
+    /**
+     * Records calculation of difference between old and new items
+     *
+     * @param nanos calculation duration in nanoseconds
+     */
+    public void recordDiff(long nanos) {
+        record(diffHistogram, 0, nanos);
+    }
+
+    /**
+     * Records dispatch of item updates to adapter
+     *
+     * @param itemCount number of inserted, removed, moved and changed items
+     */
+    public void recordUpdateSize(int itemCount) {
+        record(updateSizeHistogram, 0, itemCount);
+    }
+
+    /**
+     * Returns copy of metrics recorded so far
+     * @return metrics snapshot
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        List<ViewTypeMetrics> viewTypeMetrics = new ArrayList<>();
+        for (int slot = 0; slot <= capacity; slot++) {
+            if (slotStates.get(slot) != SLOT_READY) {
+                continue;
+            }
+            ViewTypeMetrics metrics = new ViewTypeMetrics(slotViewTypes[slot],
+                    Histogram.copyOf(createHistograms, slot * HISTOGRAM_SIZE),
+                    Histogram.copyOf(bindHistograms, slot * HISTOGRAM_SIZE),
+                    recycleCounts.get(slot), failedRecycleCounts.get(slot));
+            if (!metrics.isEmpty()) {
+                viewTypeMetrics.add(metrics);
+            }
+        }
+        return new Snapshot(Collections.unmodifiableList(viewTypeMetrics),
+                Histogram.copyOf(dispatchHistogram, 0),
+                Histogram.copyOf(diffHistogram, 0),
+                Histogram.copyOf(updateSizeHistogram, 0));
+    }
+
+    /**
+     * Resets recorded values. Values recorded concurrently with reset may be partially lost.
+     */
+    public void reset() {
+        clear(createHistograms);
+        clear(bindHistograms);
+        clear(recycleCounts);
+        clear(failedRecycleCounts);
+        clear(dispatchHistogram);
+        clear(diffHistogram);
+        clear(updateSizeHistogram);
+    }
+
+    private int slotOf(int viewType) {
+        int mask = capacity - 1;
+        int index = (viewType * 0x9E3779B9) >>> 16 & mask;
+        for (int i = 0; i < capacity; i++) {
+            int state = slotStates.get(index);
+            while (state != SLOT_READY) {
+                if (state == SLOT_FREE && slotStates.compareAndSet(index, SLOT_FREE, SLOT_CLAIMED)) {
+                    slotViewTypes[index] = viewType;
+                    slotStates.set(index, SLOT_READY);
+                    return index;
+                }
+                // Another thread is publishing view type of this slot
+                state = slotStates.get(index);
+            }
+            if (slotViewTypes[index] == viewType) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return capacity;
+    }
+
+    private static void record(AtomicLongArray histogram, int offset, long value) {
+        histogram.incrementAndGet(offset + bucketOf(value));
+        histogram.addAndGet(offset + BUCKET_COUNT, value);
+    }
+
+    static int bucketOf(long value) {
+        if (value <= 0) {
+            return 0;
+        }
+        return Math.min(64 - Long.numberOfLeadingZeros(value), BUCKET_COUNT - 1);
+    }
+
+    private static void clear(AtomicLongArray array) {
+        for (int i = 0; i < array.length(); i++) {
+            array.set(i, 0);
+        }
+    }
+
+    /**
+     * Immutable copy of recorded metrics
+     */
+    public static final class Snapshot {
+        private final List<ViewTypeMetrics> viewTypeMetrics;
+        private final Histogram dispatchLatency;
+        private final Histogram diffLatency;
+        private final Histogram updateSize;
+
+        Snapshot(List<ViewTypeMetrics> viewTypeMetrics, Histogram dispatchLatency, Histogram diffLatency,
+                 Histogram updateSize) {
+            this.viewTypeMetrics = viewTypeMetrics;
+            this.dispatchLatency = dispatchLatency;
+            this.diffLatency = diffLatency;
+            this.updateSize = updateSize;
+        }
+
+        /**
+         * Returns metrics of view types which had any view holders created, bound or recycled
+         * @return unmodifiable list of metrics
+         */
+        @NonNull
+        public List<ViewTypeMetrics> getViewTypeMetrics() {
+            return viewTypeMetrics;
+        }
+
+        /**
+         * Returns metrics of view type
+         * @param viewType view type
+         * @return metrics or null if nothing was recorded for view type
+         */
+        @Nullable
+        public ViewTypeMetrics getViewTypeMetrics(int viewType) {
+            for (int i = 0; i < viewTypeMetrics.size(); i++) {
+                if (viewTypeMetrics.get(i).getViewType() == viewType) {
+                    return viewTypeMetrics.get(i);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns latencies of item view type lookups in nanoseconds
+         * @return histogram
+         */
+        @NonNull
+        public Histogram getDispatchLatency() {
+            return dispatchLatency;
+        }
+
+        /**
+         * Returns durations of item difference calculations in nanoseconds
+         * @return histogram
+         */
+        @NonNull
+        public Histogram getDiffLatency() {
+            return diffLatency;
+        }
+
+        /**
+         * Returns numbers of items affected by dispatched updates
+         * @return histogram
+         */
+        @NonNull
+        public Histogram getUpdateSize() {
+            return updateSize;
+        }
+    }
+
+    /**
+     * Metrics of single view type
+     */
+    public static final class ViewTypeMetrics {
+        private final int viewType;
+        private final Histogram createLatency;
+        private final Histogram bindLatency;
+        private final long recycleCount;
+        private final long failedRecycleCount;
+
+        ViewTypeMetrics(int viewType, Histogram createLatency, Histogram bindLatency, long recycleCount,
+                        long failedRecycleCount) {
+            this.viewType = viewType;
+            this.createLatency = createLatency;
+            this.bindLatency = bindLatency;
+            this.recycleCount = recycleCount;
+            this.failedRecycleCount = failedRecycleCount;
+        }
+
+        /**
+         * @return view type or {@link #OTHER_VIEW_TYPE}
+         */
+        public int getViewType() {
+            return viewType;
+        }
+
+        /**
+         * Returns latencies of view holder creation in nanoseconds. Every creation is a miss of
+         * recycled view pool.
+         * @return histogram
+         */
+        @NonNull
+        public Histogram getCreateLatency() {
+            return createLatency;
+        }
+
+        /**
+         * Returns latencies of view holder binding in nanoseconds
+         * @return histogram
+         */
+        @NonNull
+        public Histogram getBindLatency() {
+            return bindLatency;
+        }
+
+        public long getRecycleCount() {
+            return recycleCount;
+        }
+
+        public long getFailedRecycleCount() {
+            return failedRecycleCount;
+        }
+
+        boolean isEmpty() {
+            return createLatency.getCount() == 0 && bindLatency.getCount() == 0
+                    && recycleCount == 0 && failedRecycleCount == 0;
+        }
+    }
+
+    /**
+     * Histogram of recorded values with power of two buckets
+     */
+    public static final class Histogram {
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+
+        private Histogram(long[] buckets, long sum) {
+            this.buckets = buckets;
+            this.sum = sum;
+            long count = 0;
+            for (long bucket : buckets) {
+                count += bucket;
+            }
+            this.count = count;
+        }
+
+        static Histogram copyOf(AtomicLongArray histogram, int offset) {
+            long[] buckets = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets[i] = histogram.get(offset + i);
+            }
+            return new Histogram(buckets, histogram.get(offset + BUCKET_COUNT));
+        }
+
+        /**
+         * @return number of recorded values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return sum of recorded values
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * @return mean of recorded values or 0 if there are no values
+         */
+        public double getMean() {
+            return count > 0 ? (double) sum / count : 0;
+        }
+
+        /**
+         * Returns number of values recorded in bucket
+         * @param bucket bucket index from 0 to {@link #BUCKET_COUNT} - 1
+         * @return number of values
+         */
+        public long getBucketCount(int bucket) {
+            return buckets[bucket];
+        }
+
+        /**
+         * Returns exclusive upper bound of values in bucket
+         * @param bucket bucket index from 0 to {@link #BUCKET_COUNT} - 1
+         * @return upper bound, {@link Long#MAX_VALUE} for the last bucket
+         */
+        public static long getBucketUpperBound(int bucket) {
+            return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+        }
+
+        /**
+         * Returns upper bound of bucket containing value at given percentile
+         * @param percentile percentile from 0 to 100
+         * @return estimate of value at percentile or 0 if there are no values
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    return getBucketUpperBound(i);
+                }
+            }
+            return getBucketUpperBound(BUCKET_COUNT - 1);
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{count=" + count + ", sum=" + sum + ", buckets=" + Arrays.toString(buckets) + "}";
+        }
+    }
+
+    /**
+     * {@link ListUpdateCallback} forwarding updates and counting affected items
+     */
+    static final class UpdateCounter implements ListUpdateCallback {
+        private final ListUpdateCallback callback;
+        private int itemCount;
+
+        UpdateCounter(ListUpdateCallback callback) {
+            this.callback = callback;
+        }
+
+        int getItemCount() {
+            return itemCount;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            itemCount += count;
+            callback.onInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            itemCount += count;
+            callback.onRemoved(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            itemCount++;
+            callback.onMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            itemCount += count;
+            callback.onChanged(position, count, payload);
+        }
+    }
+}
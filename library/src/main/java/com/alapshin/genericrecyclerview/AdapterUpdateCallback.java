@@ -0,0 +1,36 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * {@link ListUpdateCallback} dispatching updates to {@link RecyclerView.Adapter}
+ */
+final class AdapterUpdateCallback implements ListUpdateCallback {
+    private final RecyclerView.Adapter adapter;
+
+    AdapterUpdateCallback(@NonNull RecyclerView.Adapter adapter) {
+        this.adapter = adapter;
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+        adapter.notifyItemRangeInserted(position, count);
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+        adapter.notifyItemRangeRemoved(position, count);
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        adapter.notifyItemMoved(fromPosition, toPosition);
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+        adapter.notifyItemRangeChanged(position, count, payload);
+    }
+}
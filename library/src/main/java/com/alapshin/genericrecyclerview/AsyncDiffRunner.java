@@ -0,0 +1,139 @@
+package com.alapshin.genericrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs calculations of difference between provider items on executor and delivers results on the
+ * main thread. Result of calculation superseded by subsequent one or cancelled is discarded.
+ * Exception thrown by calculation is rethrown on the main thread after pending state is cleared.
+ * <p>
+ * Providers must not modify their items while calculation is pending, otherwise calculated
+ * difference would not match items it is dispatched for.
+ * </p>
+ */
+final class AsyncDiffRunner {
+    /**
+     * Difference calculation
+     *
+     * @param <R> result type
+     */
+    interface Task<R> {
+        /**
+         * Called on executor to calculate result
+         */
+        R calculate();
+
+        /**
+         * Called on the main thread with calculated result unless task was superseded or cancelled
+         */
+        void onCalculated(R result);
+    }
+
+    private Executor executor;
+    private Handler mainHandler;
+    /**
+     * Incremented on every started or cancelled task to discard stale results
+     */
+    private int generation;
+    private boolean pending;
+
+    @Nullable
+    Executor getExecutor() {
+        return executor;
+    }
+
+    void setExecutor(@Nullable Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns whether there is task which result is not delivered yet
+     */
+    boolean isPending() {
+        return pending;
+    }
+
+    /**
+     * Discards result of pending task
+     */
+    void cancel() {
+        generation++;
+        pending = false;
+    }
+
+    /**
+     * @throws IllegalStateException if there is pending task
+     */
+    void checkNotPending() {
+        if (pending) {
+            throw new IllegalStateException("Items can't be modified until items passed to setItems() are set");
+        }
+    }
+
+    /**
+     * Runs task on executor superseding pending task
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if executor rejects task, there is no
+     * pending task then
+     */
+    <R> void run(final Task<R> task) {
+        if (mainHandler == null) {
+            mainHandler = new Handler(Looper.getMainLooper());
+        }
+        final int generation = ++this.generation;
+        // Pending is set before execution because executor may deliver result synchronously
+        pending = true;
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    R result;
+                    try {
+                        result = task.calculate();
+                    } catch (RuntimeException | Error e) {
+                        fail(generation, e);
+                        return;
+                    }
+                    deliver(generation, task, result);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (generation == this.generation) {
+                pending = false;
+            }
+            throw e;
+        }
+    }
+
+    private <R> void deliver(final int generation, final Task<R> task, final R result) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != AsyncDiffRunner.this.generation) {
+                    return;
+                }
+                pending = false;
+                task.onCalculated(result);
+            }
+        });
+    }
+
+    private void fail(final int generation, final Throwable error) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == AsyncDiffRunner.this.generation) {
+                    pending = false;
+                }
+                if (error instanceof Error) {
+                    throw (Error) error;
+                }
+                throw (RuntimeException) error;
+            }
+        });
+    }
+}
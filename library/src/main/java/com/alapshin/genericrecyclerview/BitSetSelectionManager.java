@@ -0,0 +1,294 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * {@link SelectionManager} storing selected positions in a word-packed bit set.
+ * <p>
+ * Besides single position operations it supports bulk operations on position ranges which work
+ * with 64 positions at once and notify adapter with coalesced range changes. Number of selected
+ * positions is maintained incrementally.
+ * </p>
+ */
+public class BitSetSelectionManager implements SelectionManager {
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+    private static final long WORD_MASK = 0xffffffffffffffffL;
+
+    private static final int OP_SET = 0;
+    private static final int OP_CLEAR = 1;
+    private static final int OP_FLIP = 2;
+
+    private ChoiceMode choiceMode = ChoiceMode.NONE;
+    private RecyclerView.Adapter adapter;
+    private long[] words = new long[0];
+    private int cardinality;
+
+    /**
+     * Start and end (exclusive) of changed positions range which is not yet dispatched to adapter
+     */
+    private int changedStart = -1;
+    private int changedEnd = -1;
+
+    @Override
+    public void clear() {
+        applyRange(0, words.length << ADDRESS_BITS_PER_WORD, OP_CLEAR, isSelectionVisible());
+    }
+
+    @Override
+    public void setChoiceMode(ChoiceMode mode) {
+        if (mode == ChoiceMode.SINGLE && cardinality > 1) {
+            // Single choice mode keeps at most one selected item
+            clear();
+        }
+        boolean wasVisible = isSelectionVisible();
+        choiceMode = mode;
+        if (wasVisible != isSelectionVisible()) {
+            notifySelectedChanged();
+        }
+    }
+
+    @Override
+    public void setSelection(int position, boolean selected) {
+        if (choiceMode == ChoiceMode.NONE) {
+            return;
+        }
+        checkRange(position, position + 1);
+
+        if (choiceMode == ChoiceMode.SINGLE && cardinality > 0 && (cardinality != 1 || !get(position))) {
+            clear();
+        }
+
+        int op = selected ? OP_SET : OP_CLEAR;
+        applyRange(position, position + 1, op, true);
+    }
+
+    @Override
+    public boolean isSelected(int position) {
+        return isSelectionVisible() && get(position);
+    }
+
+    @Override
+    public void toggleSelection(int position) {
+        setSelection(position, !isSelected(position));
+    }
+
+    @Override
+    public void setAdapter(RecyclerView.Adapter adapter) {
+        this.adapter = adapter;
+    }
+
+    /**
+     * Select or deselect positions in range. Works only in {@link ChoiceMode#MULTI} mode.
+     *
+     * @param fromPosition first position of range
+     * @param toPosition position after the last position of range
+     * @param selected true to select positions, false to deselect
+     */
+    public void setSelection(int fromPosition, int toPosition, boolean selected) {
+        if (choiceMode != ChoiceMode.MULTI) {
+            return;
+        }
+        applyRange(fromPosition, toPosition, selected ? OP_SET : OP_CLEAR, true);
+    }
+
+    /**
+     * Select all adapter positions. Works only in {@link ChoiceMode#MULTI} mode.
+     */
+    public void selectAll() {
+        setSelection(0, getAdapterItemCount(), true);
+    }
+
+    /**
+     * Invert selection of all adapter positions. Works only in {@link ChoiceMode#MULTI} mode.
+     */
+    public void invertSelection() {
+        if (choiceMode != ChoiceMode.MULTI) {
+            return;
+        }
+        applyRange(0, getAdapterItemCount(), OP_FLIP, true);
+    }
+
+    /**
+     * Returns number of selected positions
+     * @return number of selected positions
+     */
+    public int getSelectionCount() {
+        return isSelectionVisible() ? cardinality : 0;
+    }
+
+    /**
+     * Returns the first selected position that is greater than or equal to given position.
+     * <p>
+     * To iterate over selected positions without allocations use
+     * <pre>
+     * for (int i = manager.nextSelectedPosition(0); i &gt;= 0; i = manager.nextSelectedPosition(i + 1)) {
+     *     // process position i
+     * }
+     * </pre>
+     * </p>
+     *
+     * @param fromPosition position to start search from
+     * @return next selected position or -1 if there is no such position
+     */
+    public int nextSelectedPosition(int fromPosition) {
+        if (fromPosition < 0) {
+            throw new IndexOutOfBoundsException("fromPosition < 0: " + fromPosition);
+        }
+        if (!isSelectionVisible()) {
+            return -1;
+        }
+
+        int wordIndex = fromPosition >>> ADDRESS_BITS_PER_WORD;
+        if (wordIndex >= words.length) {
+            return -1;
+        }
+
+        long word = words[wordIndex] & (WORD_MASK << fromPosition);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    private boolean isSelectionVisible() {
+        switch (choiceMode) {
+            case NONE:
+                return false;
+            case SINGLE:
+                return cardinality == 1;
+            case MULTI:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean get(int position) {
+        int wordIndex = position >>> ADDRESS_BITS_PER_WORD;
+        return wordIndex < words.length && (words[wordIndex] & (1L << position)) != 0;
+    }
+
+    /**
+     * Applies bit operation to positions in range and notifies adapter about positions whose state
+     * was changed by it
+     *
+     * @throws IndexOutOfBoundsException if range is invalid
+     */
+    private void applyRange(int fromPosition, int toPosition, int op, boolean notify) {
+        checkRange(fromPosition, toPosition);
+        if (fromPosition == toPosition) {
+            return;
+        }
+        if (op != OP_CLEAR) {
+            ensureCapacity(toPosition);
+        } else {
+            toPosition = Math.min(toPosition, words.length << ADDRESS_BITS_PER_WORD);
+            if (fromPosition >= toPosition) {
+                return;
+            }
+        }
+
+        int startWordIndex = fromPosition >>> ADDRESS_BITS_PER_WORD;
+        int endWordIndex = (toPosition - 1) >>> ADDRESS_BITS_PER_WORD;
+        long firstWordMask = WORD_MASK << fromPosition;
+        long lastWordMask = WORD_MASK >>> -toPosition;
+        for (int i = startWordIndex; i <= endWordIndex; i++) {
+            long mask = WORD_MASK;
+            if (i == startWordIndex) {
+                mask &= firstWordMask;
+            }
+            if (i == endWordIndex) {
+                mask &= lastWordMask;
+            }
+
+            long oldWord = words[i];
+            long newWord;
+            switch (op) {
+                case OP_SET:
+                    newWord = oldWord | mask;
+                    break;
+                case OP_CLEAR:
+                    newWord = oldWord & ~mask;
+                    break;
+                default:
+                    newWord = oldWord ^ mask;
+                    break;
+            }
+            words[i] = newWord;
+            cardinality += Long.bitCount(newWord) - Long.bitCount(oldWord);
+            if (notify) {
+                addChanged(i, oldWord ^ newWord);
+            }
+        }
+        dispatchChanged();
+    }
+
+    /**
+     * Notifies adapter about all selected positions
+     */
+    private void notifySelectedChanged() {
+        for (int i = 0; i < words.length; i++) {
+            addChanged(i, words[i]);
+        }
+        dispatchChanged();
+    }
+
+    /**
+     * Adds runs of positions marked in word to changed range, dispatching range when run is not
+     * adjacent to it
+     */
+    private void addChanged(int wordIndex, long changed) {
+        while (changed != 0) {
+            int start = Long.numberOfTrailingZeros(changed);
+            int length = Math.min(Long.numberOfTrailingZeros(~(changed >>> start)), BITS_PER_WORD - start);
+            int position = (wordIndex << ADDRESS_BITS_PER_WORD) + start;
+            if (changedEnd != position) {
+                dispatchChanged();
+                changedStart = position;
+            }
+            changedEnd = position + length;
+
+            int end = start + length;
+            changed = end == BITS_PER_WORD ? 0 : changed & (WORD_MASK << end);
+        }
+    }
+
+    private void dispatchChanged() {
+        if (changedStart >= 0 && adapter != null) {
+            adapter.notifyItemRangeChanged(changedStart, changedEnd - changedStart, SELECTION_PAYLOAD);
+        }
+        changedStart = -1;
+        changedEnd = -1;
+    }
+
+    private void ensureCapacity(int positionCount) {
+        int wordCount = (positionCount + BITS_PER_WORD - 1) >>> ADDRESS_BITS_PER_WORD;
+        if (wordCount > words.length) {
+            words = Arrays.copyOf(words, Math.max(wordCount, words.length * 2));
+        }
+    }
+
+    private int getAdapterItemCount() {
+        if (adapter == null) {
+            throw new IllegalStateException("No adapter added to selection manager");
+        }
+        return adapter.getItemCount();
+    }
+
+    private static void checkRange(int fromPosition, int toPosition) {
+        if (fromPosition < 0) {
+            throw new IndexOutOfBoundsException("fromPosition < 0: " + fromPosition);
+        }
+        if (fromPosition > toPosition) {
+            throw new IndexOutOfBoundsException("fromPosition: " + fromPosition + " > toPosition: " + toPosition);
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Item provider showing items of child providers one after another.
+ * <p>
+ * Item counts of children are kept in Fenwick tree, so lookup of child by position takes
+ * O(log k) time where k is number of children. Notifications of every child are translated to
+ * positions of this provider and dispatched to adapter without accessing other children.
+ * Adding child to the end takes O(log k) time, adding and removing other children rebuilds tree
+ * in O(k) time.
+ * </p>
+ * <p>
+ * Items can only be added to specific child, so {@link #addItem(Item)}, {@link #addItems(List)}
+ * and {@link #setItems(List)} are not supported. Other modifications are delegated to child
+ * containing position. View type resolver is passed to children implementing
+ * {@link ViewTypeColumnProvider}, view types of other children are resolved on lookup.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class ConcatItemProvider<T extends Item> implements ViewTypeColumnProvider<T> {
+    private final List<Child<T>> children = new ArrayList<>();
+    /**
+     * Item counts of children
+     */
+    private FenwickTree counts = new FenwickTree(0);
+    private final List<T> itemsView = new ItemsView();
+    private ListUpdateCallback adapterCallback;
+    private ViewTypeResolver<T> resolver;
+
+    /**
+     * Adds child provider to the end
+     *
+     * @param provider child provider
+     */
+    public void addProvider(@NonNull ItemProvider<T> provider) {
+        addProvider(children.size(), provider);
+    }
+
+    /**
+     * Adds child provider, child must not be attached to other adapter or provider
+     *
+     * @param index index of child
+     * @param provider child provider
+     */
+    public void addProvider(int index, @NonNull ItemProvider<T> provider) {
+        int position = index < children.size() ? counts.prefixSum(index) : getItemCount();
+        Child<T> child = new Child<>(provider);
+        children.add(index, child);
+        if (index == counts.size()) {
+            child.index = index;
+            counts.append(provider.getItemCount());
+        } else {
+            rebuildCounts();
+        }
+        if (provider instanceof ViewTypeColumnProvider) {
+            ((ViewTypeColumnProvider<T>) provider).setViewTypeResolver(resolver);
+        }
+        child.observer = new ObserverAdapter(provider, new ChildObserver(child));
+        if (adapterCallback != null) {
+            adapterCallback.onInserted(position, provider.getItemCount());
+        }
+    }
+
+    /**
+     * Removes child provider and detaches it from this provider
+     *
+     * @param index index of child
+     */
+    public void removeProvider(int index) {
+        int position = counts.prefixSum(index);
+        Child<T> child = children.remove(index);
+        int count = counts.get(index);
+        rebuildCounts();
+        child.provider.setAdapter(null);
+        if (child.provider instanceof ViewTypeColumnProvider) {
+            ((ViewTypeColumnProvider<T>) child.provider).setViewTypeResolver(null);
+        }
+        if (adapterCallback != null) {
+            adapterCallback.onRemoved(position, count);
+        }
+    }
+
+    /**
+     * Returns number of child providers
+     *
+     * @return number of children
+     */
+    public int getProviderCount() {
+        return children.size();
+    }
+
+    /**
+     * Returns child provider
+     *
+     * @param index index of child
+     * @return child provider
+     */
+    @NonNull
+    public ItemProvider<T> getProvider(int index) {
+        return children.get(index).provider;
+    }
+
+    /**
+     * Returns index of child provider containing item at position
+     *
+     * @param position item position
+     * @return index of child
+     */
+    public int getProviderIndex(int position) {
+        int count = getItemCount();
+        if (position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("Invalid position " + position + ", item count is " + count);
+        }
+        return counts.indexOf(position);
+    }
+
+    /**
+     * Returns position of the first item of child provider
+     *
+     * @param index index of child
+     * @return position of child items
+     */
+    public int getProviderOffset(int index) {
+        if (index < 0 || index >= children.size()) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", provider count is "
+                    + children.size());
+        }
+        return counts.prefixSum(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setViewTypeResolver(@Nullable ViewTypeResolver<T> resolver) {
+        this.resolver = resolver;
+        for (int i = 0; i < children.size(); i++) {
+            ItemProvider<T> provider = children.get(i).provider;
+            if (provider instanceof ViewTypeColumnProvider) {
+                ((ViewTypeColumnProvider<T>) provider).setViewTypeResolver(resolver);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemViewType(int position) {
+        if (resolver == null) {
+            throw new IllegalStateException("View type resolver is not set");
+        }
+        int index = getProviderIndex(position);
+        ItemProvider<T> provider = children.get(index).provider;
+        int childPosition = position - counts.prefixSum(index);
+        if (provider instanceof ViewTypeColumnProvider) {
+            return ((ViewTypeColumnProvider<T>) provider).getItemViewType(childPosition);
+        }
+        return resolver.getItemViewType(provider.getItem(childPosition));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemCount() {
+        return counts.prefixSum(counts.size());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemId(int position) {
+        int index = getProviderIndex(position);
+        return children.get(index).provider.getItemId(position - counts.prefixSum(index));
+    }
+
+    @Override
+    public void addItem(T item) {
+        throw new UnsupportedOperationException("ConcatItemProvider requires child provider, use getProvider()");
+    }
+
+    @Override
+    public void addItem(int position, T item) {
+        throw new UnsupportedOperationException("ConcatItemProvider requires child provider, use getProvider()");
+    }
+
+    @Override
+    public void addItems(List<T> items) {
+        throw new UnsupportedOperationException("ConcatItemProvider requires child provider, use getProvider()");
+    }
+
+    @Override
+    public void addItems(int position, List<T> items) {
+        throw new UnsupportedOperationException("ConcatItemProvider requires child provider, use getProvider()");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T getItem(int position) {
+        int index = getProviderIndex(position);
+        return children.get(index).provider.getItem(position - counts.prefixSum(index));
+    }
+
+    /**
+     * Returns unmodifiable view of items of all children
+     *
+     * @return {@link java.util.List} of items
+     */
+    @Override
+    public List<T> getItems() {
+        return itemsView;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setItem(int position, T item) {
+        int index = getProviderIndex(position);
+        children.get(index).provider.setItem(position - counts.prefixSum(index), item);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setItem(int position, T item, @Nullable Object payload) {
+        int index = getProviderIndex(position);
+        children.get(index).provider.setItem(position - counts.prefixSum(index), item, payload);
+    }
+
+    @Override
+    public void setItems(List<T> items) {
+        throw new UnsupportedOperationException("ConcatItemProvider requires child provider, use getProvider()");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeItem(int position) {
+        int index = getProviderIndex(position);
+        children.get(index).provider.removeItem(position - counts.prefixSum(index));
+    }
+
+    /**
+     * Removes items of all child providers, children are kept
+     */
+    @Override
+    public void removeItems() {
+        for (int i = 0; i < children.size(); i++) {
+            children.get(i).provider.removeItems();
+        }
+    }
+
+    @Override
+    public void setAdapter(RecyclerView.Adapter adapter) {
+        this.adapterCallback = adapter != null ? new AdapterUpdateCallback(adapter) : null;
+    }
+
+    private void rebuildCounts() {
+        int[] values = new int[children.size()];
+        for (int i = 0; i < values.length; i++) {
+            Child<T> child = children.get(i);
+            child.index = i;
+            values[i] = child.provider.getItemCount();
+        }
+        counts = FenwickTree.of(values);
+    }
+
+    private static final class Child<T extends Item> {
+        final ItemProvider<T> provider;
+        /**
+         * Adapter observing notifications of child, referenced to keep it with child
+         */
+        ObserverAdapter observer;
+        int index;
+
+        Child(ItemProvider<T> provider) {
+            this.provider = provider;
+        }
+    }
+
+    /**
+     * Observer translating notifications of child to positions of this provider
+     */
+    private class ChildObserver extends RecyclerView.AdapterDataObserver {
+        private final Child<T> child;
+
+        ChildObserver(Child<T> child) {
+            this.child = child;
+        }
+
+        @Override
+        public void onChanged() {
+            // Child items are unknown, its whole range is replaced
+            int oldCount = counts.get(child.index);
+            int newCount = child.provider.getItemCount();
+            counts.add(child.index, newCount - oldCount);
+            if (adapterCallback != null) {
+                int offset = counts.prefixSum(child.index);
+                if (oldCount > 0) {
+                    adapterCallback.onRemoved(offset, oldCount);
+                }
+                if (newCount > 0) {
+                    adapterCallback.onInserted(offset, newCount);
+                }
+            }
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            onItemRangeChanged(positionStart, itemCount, null);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            if (adapterCallback != null) {
+                adapterCallback.onChanged(counts.prefixSum(child.index) + positionStart, itemCount, payload);
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            counts.add(child.index, itemCount);
+            if (adapterCallback != null) {
+                adapterCallback.onInserted(counts.prefixSum(child.index) + positionStart, itemCount);
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            counts.add(child.index, -itemCount);
+            if (adapterCallback != null) {
+                adapterCallback.onRemoved(counts.prefixSum(child.index) + positionStart, itemCount);
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            // RecyclerView supports moves of single item only
+            if (adapterCallback != null) {
+                int offset = counts.prefixSum(child.index);
+                adapterCallback.onMoved(offset + fromPosition, offset + toPosition);
+            }
+        }
+    }
+
+    private class ItemsView extends AbstractList<T> {
+        @Override
+        public T get(int index) {
+            return getItem(index);
+        }
+
+        @Override
+        public int size() {
+            return getItemCount();
+        }
+    }
+}
@@ -1,14 +1,24 @@
 package com.alapshin.genericrecyclerview;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v7.widget.RecyclerView;
 import android.view.ViewGroup;
 
+import java.util.List;
+
 public class DefaultAdapter<T extends Item, VH extends RecyclerView.ViewHolder>
         extends RecyclerView.Adapter<VH> {
     protected ItemProvider<T> itemProvider;
     protected SelectionManager selectionManager;
     protected ViewHolderDelegateManager<T, VH> delegateManager;
+    @Nullable
+    protected AdapterMetrics metrics;
+    /**
+     * Item provider resolving view types with delegate manager
+     */
+    @Nullable
+    private ViewTypeColumnProvider<T> viewTypeColumnProvider;
 
     @Override
     public int getItemCount() {
@@ -35,6 +45,9 @@ public class DefaultAdapter<T extends Item, VH extends RecyclerView.ViewHolder>
             throw new IllegalStateException("No ViewHolderDelegate manager added to adapter");
         }
 
+        if (viewTypeColumnProvider != null && viewTypeColumnProvider == itemProvider) {
+            return viewTypeColumnProvider.getItemViewType(position);
+        }
         T item = itemProvider.getItem(position);
         return delegateManager.getItemViewType(item);
     }
@@ -50,6 +63,50 @@ public class DefaultAdapter<T extends Item, VH extends RecyclerView.ViewHolder>
 
         T item = itemProvider.getItem(position);
         delegateManager.onBindViewHolder(holder, item);
+        if (selectionManager != null) {
+            onBindSelection(holder, position, selectionManager.isSelected(position));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Full bind without payloads is delegated to {@link #onBindViewHolder(RecyclerView.ViewHolder, int)}.
+     * If all payloads are {@link SelectionManager#SELECTION_PAYLOAD} only
+     * {@link #onBindSelection(RecyclerView.ViewHolder, int, boolean)} is called.
+     * </p>
+     */
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        if (itemProvider == null) {
+            throw new IllegalStateException("No ItemProvider added to adapter");
+        }
+        if (delegateManager == null) {
+            throw new IllegalStateException("No ViewHolderDelegate manager added to adapter");
+        }
+
+        if (!isSelectionPayloadsOnly(payloads)) {
+            T item = itemProvider.getItem(position);
+            delegateManager.onBindViewHolder(holder, item, payloads);
+        }
+        if (selectionManager != null) {
+            onBindSelection(holder, position, selectionManager.isSelected(position));
+        }
+    }
+
+    /**
+     * Called to bind selection state of item to view holder after item itself was bound or when
+     * only selection state of item was changed
+     *
+     * @param holder view holder
+     * @param position item position
+     * @param selected whether item is selected
+     */
+    protected void onBindSelection(@NonNull VH holder, int position, boolean selected) {
     }
 
     @Override
@@ -60,12 +117,40 @@ public class DefaultAdapter<T extends Item, VH extends RecyclerView.ViewHolder>
         return delegateManager.onCreateViewHolder(parent, viewType);
     }
 
+    @Override
+    public void onViewRecycled(@NonNull VH holder) {
+        if (metrics != null) {
+            metrics.recordRecycle(holder.getItemViewType(), false);
+        }
+    }
+
+    @Override
+    public boolean onFailedToRecycleView(@NonNull VH holder) {
+        if (metrics != null) {
+            metrics.recordRecycle(holder.getItemViewType(), true);
+        }
+        return false;
+    }
+
+    private static boolean isSelectionPayloadsOnly(List<Object> payloads) {
+        for (int i = 0; i < payloads.size(); i++) {
+            if (payloads.get(i) != SelectionManager.SELECTION_PAYLOAD) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public ItemProvider<T> getItemProvider() {
         return itemProvider;
     }
 
     public void setItemProvider(ItemProvider<T> itemProvider) {
+        if (viewTypeColumnProvider != null && viewTypeColumnProvider != itemProvider) {
+            viewTypeColumnProvider.setViewTypeResolver(null);
+        }
         this.itemProvider = itemProvider;
+        updateViewTypeResolver();
     }
 
     public SelectionManager getSelectionManager() {
@@ -80,7 +165,41 @@ public class DefaultAdapter<T extends Item, VH extends RecyclerView.ViewHolder>
         return delegateManager;
     }
 
+    /**
+     * Set delegate manager. If item provider implements {@link ViewTypeColumnProvider} delegate
+     * manager is set as its view type resolver.
+     *
+     * @param delegateManager delegate manager
+     */
     public void setViewHolderDelegateManager(ViewHolderDelegateManager<T, VH> delegateManager) {
         this.delegateManager = delegateManager;
+        updateViewTypeResolver();
+    }
+
+    private void updateViewTypeResolver() {
+        if (itemProvider instanceof ViewTypeColumnProvider) {
+            viewTypeColumnProvider = (ViewTypeColumnProvider<T>) itemProvider;
+            viewTypeColumnProvider.setViewTypeResolver(delegateManager);
+            if (delegateManager == null) {
+                viewTypeColumnProvider = null;
+            }
+        } else {
+            viewTypeColumnProvider = null;
+        }
+    }
+
+    @Nullable
+    public AdapterMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Set metrics to record view holder recycling to. Creation and binding latencies are recorded
+     * by {@link ViewHolderDelegateManager#setMetrics(AdapterMetrics)}.
+     *
+     * @param metrics metrics or null to stop recording
+     */
+    public void setMetrics(@Nullable AdapterMetrics metrics) {
+        this.metrics = metrics;
     }
 }
@@ -1,14 +1,51 @@
 package com.alapshin.genericrecyclerview;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
 import android.support.v7.widget.RecyclerView;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
-public class DefaultItemProvider<T extends Item> implements ItemProvider<T> {
+public class DefaultItemProvider<T extends Item> implements ViewTypeColumnProvider<T> {
     private List<T> items = new ArrayList<>();
+    /**
+     * Ids and resolved view types of items
+     */
+    private ItemColumns<T> columns = new ItemColumns<>(null);
+    private final ViewHolderDelegateManager.OnDelegatesChangedListener delegatesChangedListener =
+            new ViewHolderDelegateManager.OnDelegatesChangedListener() {
+                @Override
+                public void onDelegatesChanged() {
+                    columns.invalidateViewTypes();
+                }
+            };
     private RecyclerView.Adapter adapter;
+    private ListUpdateCallback adapterCallback;
+
+    private UpdateBatch batch;
+    private int batchDepth;
+
+    /**
+     * Map for item id to item position, created on first lookup by id
+     */
+    private IntIntMap idIndex;
+    /**
+     * Whether id index matches current items, index is rebuilt lazily on lookup after items shift
+     */
+    private boolean idIndexValid;
+
+    /**
+     * Listeners notified after every replacement of items, used by {@link ItemMutationQueue}
+     */
+    private final List<OnItemsUpdatedListener> itemsUpdatedListeners = new ArrayList<>();
+
+    private final AsyncDiffRunner diffRunner = new AsyncDiffRunner();
+    private volatile DiffStrategy diffStrategy = new MyersDiffStrategy();
+    private volatile AdapterMetrics metrics;
 
     /**
      * {@inheritDoc}
@@ -20,7 +57,29 @@ public class DefaultItemProvider<T extends Item> implements ItemProvider<T> {
 
     @Override
     public int getItemId(int position) {
-        return items.get(position).id();
+        return columns.getId(position);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * View type of item is resolved on the first lookup and kept until item is replaced or
+     * delegates of {@link ViewHolderDelegateManager} resolver are changed.
+     * </p>
+     */
+    @Override
+    public void setViewTypeResolver(@Nullable ViewTypeResolver<T> resolver) {
+        ViewHolderDelegateManager.moveOnDelegatesChangedListener(columns.getResolver(), resolver,
+                delegatesChangedListener);
+        columns.setResolver(resolver);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemViewType(int position) {
+        return columns.getViewType(position, items);
     }
 
     /**
@@ -28,17 +87,25 @@ public class DefaultItemProvider<T extends Item> implements ItemProvider<T> {
      */
     @Override
     public void addItem(T item) {
+        diffRunner.checkNotPending();
         items.add(item);
-        if (adapter != null) {
-            adapter.notifyItemInserted(getItemCount() - 1);
+        columns.insert(items.size() - 1, item);
+        onItemsInserted(items.size() - 1, 1);
+        ListUpdateCallback callback = getUpdateCallback();
+        if (callback != null) {
+            callback.onInserted(getItemCount() - 1, 1);
         }
     }
 
     @Override
     public void addItem(int position, T item) {
+        diffRunner.checkNotPending();
         items.add(position, item);
-        if (adapter != null) {
-            adapter.notifyItemInserted(position);
+        columns.insert(position, item);
+        onItemsInserted(position, 1);
+        ListUpdateCallback callback = getUpdateCallback();
+        if (callback != null) {
+            callback.onInserted(position, 1);
         }
     }
 
@@ -47,18 +114,26 @@ public class DefaultItemProvider<T extends Item> implements ItemProvider<T> {
      */
     @Override
     public void addItems(List<T> items) {
+        diffRunner.checkNotPending();
         int size = getItemCount();
         this.items.addAll(items);
-        if (adapter != null) {
-            adapter.notifyItemRangeInserted(size, items.size());
+        columns.insert(size, items);
+        onItemsInserted(size, items.size());
+        ListUpdateCallback callback = getUpdateCallback();
+        if (callback != null) {
+            callback.onInserted(size, items.size());
         }
     }
 
     @Override
     public void addItems(int position, List<T> items) {
+        diffRunner.checkNotPending();
         this.items.addAll(position, items);
-        if (adapter != null) {
-            adapter.notifyItemRangeInserted(position, items.size());
+        columns.insert(position, items);
+        onItemsInserted(position, items.size());
+        ListUpdateCallback callback = getUpdateCallback();
+        if (callback != null) {
+            callback.onInserted(position, items.size());
         }
     }
 
@@ -80,12 +155,30 @@ public class DefaultItemProvider<T extends Item> implements ItemProvider<T> {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * If item implements {@link PayloadItem} its change payload is passed to adapter.
+     * </p>
      */
     @Override
     public void setItem(int position, T item) {
-        items.set(position, item);
-        if (adapter != null) {
-            adapter.notifyItemChanged(position);
+        setItem(position, item, getChangePayload(items.get(position), item));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setItem(int position, T item, @Nullable Object payload) {
+        diffRunner.checkNotPending();
+        T oldItem = items.set(position, item);
+        columns.set(position, item);
+        if (idIndexValid && oldItem.id() != item.id()) {
+            idIndex.remove(oldItem.id());
+            idIndex.put(item.id(), position);
+        }
+        ListUpdateCallback callback = getUpdateCallback();
+        if (callback != null) {
+            callback.onChanged(position, 1, payload);
         }
     }
 
@@ -94,10 +187,44 @@ public class DefaultItemProvider<T extends Item> implements ItemProvider<T> {
      */
     @Override
     public void setItems(List<T> items) {
-        if (adapter != null) {
-            DiffUtil.calculateDiff(new DiffUtilCallback(this.items, items)).dispatchUpdatesTo(adapter);
+        setItems(items, null);
+    }
+
+    /**
+     * Set provider items and notify listener once they are dispatched to adapter.
+     * <p>
+     * If diff executor is set, difference between current and new items is calculated on it and
+     * only dispatching of calculated updates happens on the main thread. Until then provider keeps
+     * returning current items and its modification methods throw {@link IllegalStateException},
+     * because modifications would not be reflected by calculated difference. Result of a call
+     * superseded by subsequent call is discarded, so the last passed items win.
+     * Passed list must not be modified after this call.
+     * </p>
+     *
+     * @param items {@link java.util.List} of items
+     * @param listener listener to notify when items are set, may be null
+     * @see #setDiffExecutor(Executor)
+     * @see #isUpdatePending()
+     */
+    public void setItems(List<T> items, @Nullable OnItemsUpdatedListener listener) {
+        if (adapter == null || diffRunner.getExecutor() == null) {
+            diffRunner.cancel();
+            DiffStrategy.Result result = adapter != null ? calculateDiff(this.items, items) : null;
+            replaceItems(items, ItemColumns.of(items, columns.getResolver()), result, listener);
+            return;
         }
-        this.items = items;
+        calculateDiffAsync(items, listener);
+    }
+
+    /**
+     * Returns whether difference between current items and items passed to
+     * {@link #setItems(List, OnItemsUpdatedListener)} is being calculated, provider items can't be
+     * modified until it is dispatched
+     *
+     * @return true if items update is pending
+     */
+    public boolean isUpdatePending() {
+        return diffRunner.isPending();
     }
 
     /**
@@ -105,9 +232,19 @@ public class DefaultItemProvider<T extends Item> implements ItemProvider<T> {
      */
     @Override
     public void removeItem(int position) {
-        items.remove(position);
-        if (adapter != null) {
-            adapter.notifyItemRemoved(position);
+        diffRunner.checkNotPending();
+        T item = items.remove(position);
+        columns.remove(position);
+        if (idIndexValid) {
+            if (position == items.size()) {
+                idIndex.remove(item.id());
+            } else {
+                idIndexValid = false;
+            }
+        }
+        ListUpdateCallback callback = getUpdateCallback();
+        if (callback != null) {
+            callback.onRemoved(position, 1);
         }
     }
 
@@ -116,18 +253,270 @@ public class DefaultItemProvider<T extends Item> implements ItemProvider<T> {
      */
     @Override
     public void removeItems() {
+        diffRunner.checkNotPending();
         int size = getItemCount();
         items.clear();
-        if (adapter != null) {
-            adapter.notifyItemRangeRemoved(0, size);
+        columns.clear();
+        idIndexValid = false;
+        ListUpdateCallback callback = getUpdateCallback();
+        if (callback != null) {
+            callback.onRemoved(0, size);
         }
     }
 
+    /**
+     * Returns position of item with given id.
+     * <p>
+     * Lookup uses index from item id to position. Index is updated incrementally when items are
+     * appended, removed from the end or replaced, other modifications shift positions and index is
+     * rebuilt on the next lookup. Item ids are expected to be unique.
+     * </p>
+     *
+     * @param id item id
+     * @return item position or {@link RecyclerView#NO_POSITION} if there is no such item
+     */
+    public int findPositionById(int id) {
+        if (!idIndexValid) {
+            rebuildIdIndex();
+        }
+        return idIndex.get(id, RecyclerView.NO_POSITION);
+    }
+
+    /**
+     * Replaces item having the same id as given item
+     *
+     * @param item new item
+     * @return true if item was replaced, false if there is no item with the same id
+     * @see #setItem(int, Item)
+     */
+    public boolean updateById(T item) {
+        int position = findPositionById(item.id());
+        if (position == RecyclerView.NO_POSITION) {
+            return false;
+        }
+        setItem(position, item);
+        return true;
+    }
+
+    /**
+     * Removes item with given id
+     *
+     * @param id item id
+     * @return true if item was removed, false if there is no item with given id
+     */
+    public boolean removeById(int id) {
+        int position = findPositionById(id);
+        if (position == RecyclerView.NO_POSITION) {
+            return false;
+        }
+        removeItem(position);
+        return true;
+    }
+
     public void setAdapter(RecyclerView.Adapter adapter) {
         this.adapter = adapter;
+        this.adapterCallback = adapter != null ? new AdapterUpdateCallback(adapter) : null;
     }
 
-    class DiffUtilCallback extends DiffUtil.Callback {
+    /**
+     * Starts batch of modifications.
+     * <p>
+     * Adapter notifications about modifications made until matching {@link #commit()} call are
+     * recorded, merged into the minimal number of range notifications and dispatched on commit.
+     * Batches can be nested, notifications are dispatched when outermost batch is committed.
+     * Batch must be committed before control returns to the main thread looper.
+     * </p>
+     */
+    public void beginBatch() {
+        if (batchDepth++ == 0 && batch == null) {
+            batch = new UpdateBatch();
+        }
+    }
+
+    /**
+     * Finishes batch of modifications started by {@link #beginBatch()}
+     *
+     * @throws IllegalStateException if there is no started batch
+     */
+    public void commit() {
+        if (batchDepth == 0) {
+            throw new IllegalStateException("commit() called without matching beginBatch()");
+        }
+        if (--batchDepth == 0) {
+            if (adapterCallback != null) {
+                batch.dispatchUpdatesTo(adapterCallback);
+            } else {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Set metrics to record durations of difference calculations and sizes of dispatched updates to
+     *
+     * @param metrics metrics or null to stop recording
+     */
+    public void setMetrics(@Nullable AdapterMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Set executor used to calculate difference between old and new items in
+     * {@link #setItems(List, OnItemsUpdatedListener)}
+     *
+     * @param diffExecutor executor or null to calculate difference on the calling thread
+     */
+    public void setDiffExecutor(@Nullable Executor diffExecutor) {
+        diffRunner.setExecutor(diffExecutor);
+    }
+
+    /**
+     * Set strategy used to calculate difference between old and new items in
+     * {@link #setItems(List, OnItemsUpdatedListener)}, {@link MyersDiffStrategy} is used by default
+     *
+     * @param diffStrategy diff strategy
+     */
+    public void setDiffStrategy(@NonNull DiffStrategy diffStrategy) {
+        this.diffStrategy = diffStrategy;
+    }
+
+    private void calculateDiffAsync(final List<T> newItems, final OnItemsUpdatedListener listener) {
+        // Current items are not modified until difference is dispatched
+        final List<T> oldItems = items;
+        final ViewTypeResolver<T> resolver = columns.getResolver();
+        diffRunner.run(new AsyncDiffRunner.Task<DiffStrategy.Result>() {
+            private ItemColumns<T> newColumns;
+
+            @Override
+            public DiffStrategy.Result calculate() {
+                newColumns = ItemColumns.of(newItems, resolver);
+                return calculateDiff(oldItems, newItems);
+            }
+
+            @Override
+            public void onCalculated(DiffStrategy.Result result) {
+                if (adapter == null || diffRunner.getExecutor() == null) {
+                    // Provider configuration changed while calculating difference
+                    setItems(newItems, listener);
+                    return;
+                }
+                replaceItems(newItems, resolver == columns.getResolver()
+                        ? newColumns : ItemColumns.of(newItems, columns.getResolver()), result, listener);
+            }
+        });
+    }
+
+    /**
+     * Replaces items before dispatching updates, so adapter observers see new items
+     */
+    private void replaceItems(List<T> newItems, ItemColumns<T> newColumns, @Nullable DiffStrategy.Result result,
+                              @Nullable OnItemsUpdatedListener listener) {
+        items = newItems;
+        columns = newColumns;
+        idIndexValid = false;
+        if (result != null) {
+            dispatchUpdates(result);
+        }
+        if (listener != null) {
+            listener.onItemsUpdated();
+        }
+        for (int i = 0; i < itemsUpdatedListeners.size(); i++) {
+            itemsUpdatedListeners.get(i).onItemsUpdated();
+        }
+    }
+
+    /**
+     * Adds listener notified every time items passed to {@link #setItems(List, OnItemsUpdatedListener)}
+     * become provider items, including calls made by other clients
+     */
+    void addOnItemsUpdatedListener(@NonNull OnItemsUpdatedListener listener) {
+        itemsUpdatedListeners.add(listener);
+    }
+
+    private DiffStrategy.Result calculateDiff(List<T> oldItems, List<T> newItems) {
+        AdapterMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        DiffStrategy.Result result = diffStrategy.calculateDiff(oldItems, newItems);
+        if (metrics != null) {
+            metrics.recordDiff(System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    private void dispatchUpdates(DiffStrategy.Result result) {
+        AdapterMetrics metrics = this.metrics;
+        if (metrics == null) {
+            result.dispatchUpdatesTo(getUpdateCallback());
+            return;
+        }
+        AdapterMetrics.UpdateCounter counter = new AdapterMetrics.UpdateCounter(getUpdateCallback());
+        result.dispatchUpdatesTo(counter);
+        metrics.recordUpdateSize(counter.getItemCount());
+    }
+
+    private void onItemsInserted(int position, int count) {
+        if (!idIndexValid) {
+            return;
+        }
+        if (position + count == items.size()) {
+            for (int i = position; i < position + count; i++) {
+                idIndex.put(items.get(i).id(), i);
+            }
+        } else {
+            idIndexValid = false;
+        }
+    }
+
+    private void rebuildIdIndex() {
+        int size = items.size();
+        if (idIndex == null) {
+            idIndex = new IntIntMap(size);
+        } else {
+            idIndex.clear();
+        }
+        for (int i = 0; i < size; i++) {
+            idIndex.put(items.get(i).id(), i);
+        }
+        idIndexValid = true;
+    }
+
+    /**
+     * Returns callback to notify about modifications or null if there is nothing to notify
+     */
+    @Nullable
+    private ListUpdateCallback getUpdateCallback() {
+        return batchDepth > 0 ? batch : adapterCallback;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    static <T extends Item> Object getChangePayload(T oldItem, T newItem) {
+        if (oldItem instanceof VersionedItem && newItem instanceof VersionedItem
+                && areContentsTheSame(oldItem, newItem)) {
+            // Item is not changed, there is nothing to describe
+            return null;
+        }
+        if (newItem instanceof PayloadItem) {
+            return ((PayloadItem<T>) newItem).getChangePayload(oldItem);
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether items have the same content, comparing versions of {@link VersionedItem}
+     * items and using equals otherwise
+     */
+    static <T extends Item> boolean areContentsTheSame(T oldItem, T newItem) {
+        if (oldItem instanceof VersionedItem && newItem instanceof VersionedItem) {
+            return ((VersionedItem) oldItem).version() == ((VersionedItem) newItem).version();
+        }
+        return oldItem.equals(newItem);
+    }
+
+    /**
+     * Callback matching items by id and comparing their contents with {@link #areContentsTheSame(Item, Item)}
+     */
+    static class DiffUtilCallback<T extends Item> extends DiffUtil.Callback {
         private final List<T> oldList;
         private final List<T> newList;
 
@@ -153,7 +542,13 @@ public class DefaultItemProvider<T extends Item> implements ItemProvider<T> {
 
         @Override
         public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-            return oldList.get(oldItemPosition).equals(newList.get(newItemPosition));
+            return DefaultItemProvider.areContentsTheSame(oldList.get(oldItemPosition), newList.get(newItemPosition));
+        }
+
+        @Nullable
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return DefaultItemProvider.getChangePayload(oldList.get(oldItemPosition), newList.get(newItemPosition));
         }
     }
 }
@@ -6,22 +6,30 @@ import android.util.SparseBooleanArray;
 public class DefaultSelectionManager implements SelectionManager {
     private ChoiceMode choiceMode = ChoiceMode.NONE;
     private RecyclerView.Adapter adapter;
+    /**
+     * Selected positions, only positions with true value are stored
+     */
     private SparseBooleanArray selectedItems = new SparseBooleanArray();
 
 
     @Override
     public void clear() {
-        selectedItems.clear();
-        if (adapter != null) {
-            adapter.notifyDataSetChanged();
+        if (isSelectionVisible()) {
+            notifySelectedChanged();
         }
+        selectedItems.clear();
     }
 
     @Override
     public void setChoiceMode(ChoiceMode mode) {
+        if (mode == ChoiceMode.SINGLE && selectedItems.size() > 1) {
+            // Single choice mode keeps at most one selected item
+            clear();
+        }
+        boolean wasVisible = isSelectionVisible();
         choiceMode = mode;
-        if (adapter != null) {
-            adapter.notifyDataSetChanged();
+        if (wasVisible != isSelectionVisible()) {
+            notifySelectedChanged();
         }
     }
 
@@ -31,26 +39,21 @@ public class DefaultSelectionManager implements SelectionManager {
             return;
         }
 
-        if (choiceMode == ChoiceMode.SINGLE) {
-            // Find previously selected item
-            int oldPosition = -1;
-            if (selectedItems.size() == 1) {
-                oldPosition = selectedItems.keyAt(0);
-            }
-
-            if (oldPosition != position) {
-                selectedItems.clear();
-                if (adapter != null) {
-                    adapter.notifyItemChanged(oldPosition);
-                }
-            }
+        if (choiceMode == ChoiceMode.SINGLE
+                && (selectedItems.size() != 1 || selectedItems.keyAt(0) != position)) {
+            // Deselect previously selected item
+            clear();
         }
 
         boolean oldSelected = selectedItems.get(position, false);
         if (oldSelected != selected) {
-            selectedItems.append(position, selected);
+            if (selected) {
+                selectedItems.put(position, true);
+            } else {
+                selectedItems.delete(position);
+            }
             if (adapter != null) {
-                adapter.notifyItemChanged(position);
+                adapter.notifyItemChanged(position, SELECTION_PAYLOAD);
             }
         }
     }
@@ -80,4 +83,39 @@ public class DefaultSelectionManager implements SelectionManager {
     public void setAdapter(RecyclerView.Adapter adapter) {
         this.adapter = adapter;
     }
+
+    /**
+     * Returns whether stored selected positions are reported as selected in current choice mode
+     */
+    private boolean isSelectionVisible() {
+        switch (choiceMode) {
+            case NONE:
+                return false;
+            case SINGLE:
+                return selectedItems.size() == 1;
+            case MULTI:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Notifies adapter about all selected positions coalescing adjacent positions into ranges
+     */
+    private void notifySelectedChanged() {
+        if (adapter == null) {
+            return;
+        }
+        int size = selectedItems.size();
+        int i = 0;
+        while (i < size) {
+            int start = selectedItems.keyAt(i);
+            int end = start + 1;
+            while (++i < size && selectedItems.keyAt(i) == end) {
+                end++;
+            }
+            adapter.notifyItemRangeChanged(start, end - start, SELECTION_PAYLOAD);
+        }
+    }
 }
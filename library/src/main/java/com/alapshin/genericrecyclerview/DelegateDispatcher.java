@@ -0,0 +1,35 @@
+package com.alapshin.genericrecyclerview;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests generation of {@link ViewHolderDelegateManager} subclass dispatching to given
+ * delegates with direct typed calls.
+ * <p>
+ * Annotated class must extend {@link android.support.v7.widget.RecyclerView.Adapter}. Annotation
+ * processor from {@code processor} module generates class named after annotated class with
+ * {@code Dispatcher} suffix in the same package, e.g. {@code SampleAdapterDispatcher} for
+ * {@code SampleAdapter}. Generated class finds {@link ItemTypeViewHolderDelegate} by switch on
+ * {@link Item#type()} values declared with {@link ItemTypes}, checks
+ * {@link ViewHolderDelegate#isForViewType(Item)} of other delegates in declaration order, creates
+ * and binds view holders without lookups and reflective casts. View types are assigned by
+ * {@link ViewTypeRegistry}.
+ * </p>
+ * <p>
+ * All delegates must have the same item type and their view holders must extend view holder of
+ * annotated adapter. Item type delegates must be annotated with {@link ItemTypes} and must not
+ * declare the same item type. If all delegates have no-arg constructors generated class has no-arg
+ * constructor, otherwise delegates are passed to constructor in declaration order.
+ * </p>
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface DelegateDispatcher {
+    /**
+     * @return delegate classes in order of lookup
+     */
+    Class<? extends ViewHolderDelegate>[] value();
+}
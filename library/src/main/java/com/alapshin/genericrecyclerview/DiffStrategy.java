@@ -0,0 +1,40 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.util.ListUpdateCallback;
+
+import java.util.List;
+
+/**
+ * Strategy calculating list updates transforming old items into new items.
+ * <p>
+ * Difference may be calculated on a background thread, so implementations must be thread safe.
+ * </p>
+ *
+ * @see MyersDiffStrategy
+ * @see IdDiffStrategy
+ */
+public interface DiffStrategy {
+    /**
+     * Calculated list updates
+     */
+    interface Result {
+        /**
+         * Dispatches updates to callback
+         *
+         * @param callback callback to dispatch updates to
+         */
+        void dispatchUpdatesTo(@NonNull ListUpdateCallback callback);
+    }
+
+    /**
+     * Calculates updates transforming old items into new items
+     *
+     * @param oldItems old items
+     * @param newItems new items
+     * @param <T> item type
+     * @return calculated updates
+     */
+    @NonNull
+    <T extends Item> Result calculateDiff(@NonNull List<T> oldItems, @NonNull List<T> newItems);
+}
@@ -0,0 +1,92 @@
+package com.alapshin.genericrecyclerview;
+
+import java.util.Arrays;
+
+/**
+ * Binary indexed tree of int values supporting point updates, appends and prefix sums in
+ * O(log n) time
+ */
+final class FenwickTree {
+    private int[] tree;
+    private int size;
+
+    FenwickTree(int size) {
+        tree = new int[size + 1];
+        this.size = size;
+    }
+
+    /**
+     * Creates tree containing given values in O(n) time
+     */
+    static FenwickTree of(int[] values) {
+        int size = values.length;
+        FenwickTree fenwickTree = new FenwickTree(size);
+        int[] tree = fenwickTree.tree;
+        for (int i = 1; i <= size; i++) {
+            tree[i] += values[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                tree[parent] += tree[i];
+            }
+        }
+        return fenwickTree;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Appends value to the end of tree
+     */
+    void append(int value) {
+        int index = size + 1;
+        if (index == tree.length) {
+            // Node ranges do not depend on tree size, so existing nodes stay valid
+            tree = Arrays.copyOf(tree, Math.max(2 * tree.length, 8));
+        }
+        tree[index] = value + prefixSum(index - 1) - prefixSum(index - (index & -index));
+        size = index;
+    }
+
+    /**
+     * Adds delta to value at index
+     */
+    void add(int index, int delta) {
+        for (int i = index + 1; i <= size; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns sum of values at indexes from 0 inclusive to end exclusive
+     */
+    int prefixSum(int end) {
+        int sum = 0;
+        for (int i = end; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    int get(int index) {
+        return prefixSum(index + 1) - prefixSum(index);
+    }
+
+    /**
+     * Returns index of value containing given position when values are treated as lengths of
+     * consecutive ranges, i.e. index such that prefixSum(index) &lt;= position &lt; prefixSum(index + 1).
+     * Values must be non-negative, returns size if position is not less than sum of all values.
+     */
+    int indexOf(int position) {
+        int index = 0;
+        for (int mask = Integer.highestOneBit(Math.max(size, 1)); mask != 0; mask >>= 1) {
+            int next = index + mask;
+            if (next <= size && tree[next] <= position) {
+                index = next;
+                position -= tree[next];
+            }
+        }
+        return index;
+    }
+}
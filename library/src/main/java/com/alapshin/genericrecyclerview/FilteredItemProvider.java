@@ -0,0 +1,796 @@
+package com.alapshin.genericrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link ItemProvider} showing items of source provider matching current query.
+ * <p>
+ * Query is applied on background executor, result of query superseded by subsequent
+ * {@link #setQuery(String)} call is discarded. If new query starts with previous query only items
+ * matching previous query are checked and only they are copied for background thread. Other queries
+ * copy all source items unless {@link ItemProvider#getItems()} returns immutable
+ * {@link PersistentList}. If {@link TextExtractor} is set, items are preselected using index of
+ * word prefixes built from item text.
+ * </p>
+ * <p>
+ * Modifications of source provider are applied to filtered items incrementally, only modified
+ * items are checked against current query. Positions in a sequence of notifications about one
+ * source modification, e.g. calculated difference, refer to intermediate states of source items,
+ * so inserted and changed items are checked on the next main thread message after source finishes
+ * dispatching notifications. If source notifies that all its items changed, provider is empty
+ * until source items are filtered on background executor. Source provider becomes attached to
+ * internal adapter, so it must not be attached to another adapter. Source provider must support
+ * {@link ItemProvider#getItems()}. Modification methods of this provider modify source provider.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class FilteredItemProvider<T extends Item> implements ItemProvider<T> {
+    /**
+     * Predicate deciding whether item matches query
+     *
+     * @param <T> item type
+     */
+    public interface Filter<T extends Item> {
+        /**
+         * Called on background thread for query changes and changes of all source items, on the
+         * main thread for inserted and changed source items.
+         * <p>
+         * Item not matching query must not match any query starting with it.
+         * </p>
+         *
+         * @param item item
+         * @param query non empty query
+         * @return true if item matches query
+         */
+        boolean matches(@NonNull T item, @NonNull String query);
+    }
+
+    /**
+     * Provider of item text used to build word prefix index.
+     * <p>
+     * Filter must match only items whose text contains words starting with every word of query.
+     * </p>
+     *
+     * @param <T> item type
+     */
+    public interface TextExtractor<T extends Item> {
+        @NonNull
+        String getText(@NonNull T item);
+    }
+
+    private final ItemProvider<T> source;
+    private final Filter<T> filter;
+    private final Executor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<T> itemsView = new ItemsView();
+    @Nullable
+    private TextExtractor<T> textExtractor;
+
+    private RecyclerView.Adapter adapter;
+    private ListUpdateCallback adapterCallback;
+
+    /**
+     * Sorted source positions of items matching applied query
+     */
+    private int[] matches = new int[0];
+    private int matchCount;
+    /**
+     * Query matches are computed for, empty query matches all items
+     */
+    private String appliedQuery = "";
+    /**
+     * Query passed to the last {@link #setQuery(String)} call
+     */
+    private String requestedQuery = "";
+    /**
+     * Whether matches are incomplete and next query must check all source items
+     */
+    private boolean fullFilterRequired;
+    /**
+     * Incremented on every {@link #setQuery(String)} call to discard stale results
+     */
+    private int generation;
+    /**
+     * Incremented on every source modification to detect stale results and index
+     */
+    private int sourceVersion;
+    private TokenIndex index;
+    private int indexVersion = -1;
+    /**
+     * Sorted source positions of inserted and changed items not yet checked against applied query
+     */
+    private int[] pending = new int[0];
+    private int pendingCount;
+    private boolean pendingCheckScheduled;
+    private final Runnable pendingCheck = new Runnable() {
+        @Override
+        public void run() {
+            checkPendingItems();
+        }
+    };
+
+    public FilteredItemProvider(@NonNull ItemProvider<T> source, @NonNull Filter<T> filter,
+                                @NonNull Executor executor) {
+        this.source = source;
+        this.filter = filter;
+        this.executor = executor;
+        new ObserverAdapter(source, new SourceObserver());
+        resetMatches(matchAll());
+    }
+
+    /**
+     * Set extractor of item text used to build word prefix index
+     * @param textExtractor text extractor or null to disable index
+     */
+    public void setTextExtractor(@Nullable TextExtractor<T> textExtractor) {
+        this.textExtractor = textExtractor;
+        this.index = null;
+        this.indexVersion = -1;
+    }
+
+    /**
+     * Returns query for which provider items are computed
+     * @return applied query
+     */
+    @NonNull
+    public String getQuery() {
+        return appliedQuery;
+    }
+
+    /**
+     * Set query and filter source items on background executor
+     * @param query query, null or empty query matches all items
+     */
+    public void setQuery(@Nullable String query) {
+        final String newQuery = query != null ? query : "";
+        requestedQuery = newQuery;
+        checkPendingItems();
+        final int generation = ++this.generation;
+        final int version = sourceVersion;
+        if (newQuery.isEmpty()) {
+            fullFilterRequired = false;
+            applyMatches(newQuery, matchAll(), matchCount == source.getItemCount() ? matches : null);
+            return;
+        }
+
+        final List<T> items;
+        final int[] candidates;
+        if (!fullFilterRequired && !appliedQuery.isEmpty() && newQuery.startsWith(appliedQuery)) {
+            // Items not matching previous query can't match extended query
+            candidates = Arrays.copyOf(matches, matchCount);
+            items = new ArrayList<>(matchCount);
+            for (int i = 0; i < matchCount; i++) {
+                items.add(source.getItem(matches[i]));
+            }
+        } else {
+            candidates = null;
+            items = snapshotSourceItems();
+        }
+        final TextExtractor<T> extractor = textExtractor;
+        final TokenIndex currentIndex = indexVersion == version ? index : null;
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                TokenIndex resultIndex = currentIndex;
+                if (candidates == null && extractor != null && resultIndex == null) {
+                    resultIndex = TokenIndex.build(items, extractor);
+                }
+                final TokenIndex builtIndex = resultIndex;
+                final int[] result = filter(items, candidates, newQuery, candidates == null ? builtIndex : null);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onFilterFinished(generation, version, newQuery, result, builtIndex, candidates == null);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemCount() {
+        return matchCount;
+    }
+
+    @Override
+    public int getItemId(int position) {
+        return source.getItemId(toSourcePosition(position));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Item is added to source provider.
+     * </p>
+     */
+    @Override
+    public void addItem(T item) {
+        source.addItem(item);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Item is added to source provider before source item at given position.
+     * </p>
+     */
+    @Override
+    public void addItem(int position, T item) {
+        source.addItem(toInsertionSourcePosition(position), item);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Items are added to source provider.
+     * </p>
+     */
+    @Override
+    public void addItems(List<T> items) {
+        source.addItems(items);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Items are added to source provider before source item at given position.
+     * </p>
+     */
+    @Override
+    public void addItems(int position, List<T> items) {
+        source.addItems(toInsertionSourcePosition(position), items);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T getItem(int position) {
+        return source.getItem(toSourcePosition(position));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns unmodifiable view of provider items.
+     * </p>
+     */
+    @Override
+    public List<T> getItems() {
+        return itemsView;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Item is replaced in source provider.
+     * </p>
+     */
+    @Override
+    public void setItem(int position, T item) {
+        source.setItem(toSourcePosition(position), item);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Item is replaced in source provider.
+     * </p>
+     */
+    @Override
+    public void setItem(int position, T item, @Nullable Object payload) {
+        source.setItem(toSourcePosition(position), item, payload);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Items of source provider are replaced.
+     * </p>
+     */
+    @Override
+    public void setItems(List<T> items) {
+        source.setItems(items);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Item is removed from source provider.
+     * </p>
+     */
+    @Override
+    public void removeItem(int position) {
+        source.removeItem(toSourcePosition(position));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All items are removed from source provider.
+     * </p>
+     */
+    @Override
+    public void removeItems() {
+        source.removeItems();
+    }
+
+    @Override
+    public void setAdapter(RecyclerView.Adapter adapter) {
+        this.adapter = adapter;
+        this.adapterCallback = adapter != null ? new AdapterUpdateCallback(adapter) : null;
+    }
+
+    private int toSourcePosition(int position) {
+        if (position < 0 || position >= matchCount) {
+            throw new IndexOutOfBoundsException("Invalid position " + position + ", size is " + matchCount);
+        }
+        return matches[position];
+    }
+
+    private int toInsertionSourcePosition(int position) {
+        return position == matchCount ? source.getItemCount() : toSourcePosition(position);
+    }
+
+    private void onFilterFinished(int generation, int version, String query, int[] result, TokenIndex builtIndex,
+                                  boolean full) {
+        if (generation != this.generation) {
+            return;
+        }
+        if (version != sourceVersion) {
+            // Source was modified while filtering, positions in result are stale
+            setQuery(query);
+            return;
+        }
+        if (builtIndex != null) {
+            index = builtIndex;
+            indexVersion = version;
+        }
+        if (full) {
+            fullFilterRequired = false;
+        }
+        applyMatches(query, result, null);
+    }
+
+    /**
+     * Replaces current matches notifying adapter about removed and inserted items
+     *
+     * @param newMatches sorted source positions
+     * @param sameMatches current matches if it's known that they equal new matches, otherwise null
+     */
+    private void applyMatches(String query, int[] newMatches, @Nullable int[] sameMatches) {
+        appliedQuery = query;
+        if (sameMatches != null) {
+            return;
+        }
+        UpdateBatch batch = new UpdateBatch();
+        int i = 0;
+        int j = 0;
+        int position = 0;
+        while (i < matchCount || j < newMatches.length) {
+            if (i < matchCount && j < newMatches.length && matches[i] == newMatches[j]) {
+                i++;
+                j++;
+                position++;
+            } else if (j == newMatches.length || i < matchCount && matches[i] < newMatches[j]) {
+                batch.onRemoved(position, 1);
+                i++;
+            } else {
+                batch.onInserted(position, 1);
+                j++;
+                position++;
+            }
+        }
+        matches = newMatches;
+        matchCount = newMatches.length;
+        if (adapterCallback != null) {
+            batch.dispatchUpdatesTo(adapterCallback);
+        }
+    }
+
+    private void resetMatches(int[] newMatches) {
+        matches = newMatches;
+        matchCount = newMatches.length;
+    }
+
+    private int[] matchAll() {
+        int count = source.getItemCount();
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = i;
+        }
+        return result;
+    }
+
+    private boolean matchesQuery(T item) {
+        return appliedQuery.isEmpty() || filter.matches(item, appliedQuery);
+    }
+
+    /**
+     * Returns source items which can be read on background thread
+     */
+    private List<T> snapshotSourceItems() {
+        List<T> items = source.getItems();
+        return items instanceof PersistentList ? items : new ArrayList<>(items);
+    }
+
+    /**
+     * Returns sorted positions of items matching query
+     *
+     * @param items items to check
+     * @param positions sorted source positions of items or null if items are all source items
+     * @param index index used to preselect items if positions are not specified
+     */
+    private int[] filter(List<T> items, @Nullable int[] positions, String query, @Nullable TokenIndex index) {
+        BitSet indexCandidates = index != null ? index.getCandidates(query) : null;
+        int count = items.size();
+        int[] result = new int[count];
+        int resultCount = 0;
+        for (int i = 0; i < count; i++) {
+            int position = positions != null ? positions[i] : i;
+            if (indexCandidates != null && !indexCandidates.get(position)) {
+                continue;
+            }
+            if (filter.matches(items.get(i), query)) {
+                result[resultCount++] = position;
+            }
+        }
+        return Arrays.copyOf(result, resultCount);
+    }
+
+    /**
+     * Returns index of the first match with source position greater than or equal to given one
+     */
+    private int lowerBound(int sourcePosition) {
+        int low = 0;
+        int high = matchCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (matches[mid] < sourcePosition) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > matches.length) {
+            matches = Arrays.copyOf(matches, Math.max(capacity, matches.length * 2));
+        }
+    }
+
+    private void onSourceRangeInserted(int positionStart, int itemCount) {
+        int matchIndex = lowerBound(positionStart);
+        if (appliedQuery.isEmpty()) {
+            // All items match empty query, there is no need to check them
+            ensureCapacity(matchCount + itemCount);
+            System.arraycopy(matches, matchIndex, matches, matchIndex + itemCount, matchCount - matchIndex);
+            for (int i = 0; i < itemCount; i++) {
+                matches[matchIndex + i] = positionStart + i;
+            }
+            matchCount += itemCount;
+            matchIndex += itemCount;
+        }
+        for (int i = matchIndex; i < matchCount; i++) {
+            matches[i] += itemCount;
+        }
+        shiftPending(positionStart, itemCount, !appliedQuery.isEmpty());
+        if (appliedQuery.isEmpty() && adapterCallback != null && itemCount > 0) {
+            adapterCallback.onInserted(matchIndex - itemCount, itemCount);
+        }
+    }
+
+    /**
+     * Shifts pending positions after inserted source items and adds inserted items if they must be checked
+     */
+    private void shiftPending(int positionStart, int itemCount, boolean check) {
+        int insertedCount = check ? itemCount : 0;
+        int index = lowerBoundPending(positionStart);
+        if (pendingCount + insertedCount > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pendingCount + insertedCount, pending.length * 2));
+        }
+        System.arraycopy(pending, index, pending, index + insertedCount, pendingCount - index);
+        for (int i = 0; i < insertedCount; i++) {
+            pending[index + i] = positionStart + i;
+        }
+        pendingCount += insertedCount;
+        for (int i = index + insertedCount; i < pendingCount; i++) {
+            pending[i] += itemCount;
+        }
+        if (insertedCount > 0) {
+            schedulePendingCheck();
+        }
+    }
+
+    private void onSourceRangeRemoved(int positionStart, int itemCount) {
+        int start = lowerBound(positionStart);
+        int end = lowerBound(positionStart + itemCount);
+        int removedCount = end - start;
+        System.arraycopy(matches, end, matches, start, matchCount - end);
+        matchCount -= removedCount;
+        for (int i = start; i < matchCount; i++) {
+            matches[i] -= itemCount;
+        }
+
+        int pendingStart = lowerBoundPending(positionStart);
+        int pendingEnd = lowerBoundPending(positionStart + itemCount);
+        System.arraycopy(pending, pendingEnd, pending, pendingStart, pendingCount - pendingEnd);
+        pendingCount -= pendingEnd - pendingStart;
+        for (int i = pendingStart; i < pendingCount; i++) {
+            pending[i] -= itemCount;
+        }
+
+        if (adapterCallback != null && removedCount > 0) {
+            adapterCallback.onRemoved(start, removedCount);
+        }
+    }
+
+    private void onSourceRangeChanged(int positionStart, int itemCount, Object payload) {
+        int start = lowerBound(positionStart);
+        int end = lowerBound(positionStart + itemCount);
+        // Changed items may stop or start matching query, they are checked with inserted items
+        for (int i = 0; i < itemCount && !appliedQuery.isEmpty(); i++) {
+            int position = positionStart + i;
+            int index = lowerBoundPending(position);
+            if (index == pendingCount || pending[index] != position) {
+                if (pendingCount == pending.length) {
+                    pending = Arrays.copyOf(pending, Math.max(8, pending.length * 2));
+                }
+                System.arraycopy(pending, index, pending, index + 1, pendingCount - index);
+                pending[index] = position;
+                pendingCount++;
+                schedulePendingCheck();
+            }
+        }
+        if (adapterCallback != null && end > start) {
+            UpdateBatch batch = new UpdateBatch();
+            for (int i = start; i < end; i++) {
+                batch.onChanged(i, 1, payload);
+            }
+            batch.dispatchUpdatesTo(adapterCallback);
+        }
+    }
+
+    /**
+     * Returns index of the first pending position greater than or equal to given one
+     */
+    private int lowerBoundPending(int sourcePosition) {
+        int low = 0;
+        int high = pendingCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (pending[mid] < sourcePosition) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void schedulePendingCheck() {
+        if (!pendingCheckScheduled) {
+            pendingCheckScheduled = true;
+            mainHandler.post(pendingCheck);
+        }
+    }
+
+    /**
+     * Checks inserted and changed source items against applied query once source items match
+     * positions of received notifications
+     */
+    private void checkPendingItems() {
+        if (pendingCheckScheduled) {
+            pendingCheckScheduled = false;
+            mainHandler.removeCallbacks(pendingCheck);
+        }
+        if (pendingCount == 0) {
+            return;
+        }
+        UpdateBatch batch = new UpdateBatch();
+        for (int i = 0; i < pendingCount; i++) {
+            int position = pending[i];
+            int index = lowerBound(position);
+            boolean matched = index < matchCount && matches[index] == position;
+            boolean matching = matchesQuery(source.getItem(position));
+            if (matched && !matching) {
+                System.arraycopy(matches, index + 1, matches, index, matchCount - index - 1);
+                matchCount--;
+                batch.onRemoved(index, 1);
+            } else if (!matched && matching) {
+                ensureCapacity(matchCount + 1);
+                System.arraycopy(matches, index, matches, index + 1, matchCount - index);
+                matches[index] = position;
+                matchCount++;
+                batch.onInserted(index, 1);
+            }
+        }
+        pendingCount = 0;
+        if (adapterCallback != null) {
+            batch.dispatchUpdatesTo(adapterCallback);
+        }
+    }
+
+    private class SourceObserver extends RecyclerView.AdapterDataObserver {
+        @Override
+        public void onChanged() {
+            sourceVersion++;
+            pendingCount = 0;
+            if (appliedQuery.isEmpty()) {
+                resetMatches(matchAll());
+            } else {
+                // All source items are filtered on background executor, matches are inserted then
+                resetMatches(new int[0]);
+                fullFilterRequired = true;
+            }
+            if (adapter != null) {
+                adapter.notifyDataSetChanged();
+            }
+            if (fullFilterRequired) {
+                setQuery(requestedQuery);
+            }
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            onItemRangeChanged(positionStart, itemCount, null);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            sourceVersion++;
+            onSourceRangeChanged(positionStart, itemCount, payload);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            sourceVersion++;
+            onSourceRangeInserted(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            sourceVersion++;
+            onSourceRangeRemoved(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            sourceVersion++;
+            onSourceRangeRemoved(fromPosition, itemCount);
+            onSourceRangeInserted(toPosition, itemCount);
+        }
+    }
+
+    private class ItemsView extends AbstractList<T> {
+        @Override
+        public T get(int index) {
+            return getItem(index);
+        }
+
+        @Override
+        public int size() {
+            return matchCount;
+        }
+    }
+
+    /**
+     * Index of lowercase words of item text, word prefix lookup uses binary search over sorted words
+     */
+    private static final class TokenIndex {
+        private final String[] tokens;
+        private final int[][] postings;
+        private final int itemCount;
+
+        private TokenIndex(String[] tokens, int[][] postings, int itemCount) {
+            this.tokens = tokens;
+            this.postings = postings;
+            this.itemCount = itemCount;
+        }
+
+        static <T extends Item> TokenIndex build(List<T> items, TextExtractor<T> extractor) {
+            Map<String, int[]> postingMap = new HashMap<>();
+            for (int position = 0; position < items.size(); position++) {
+                for (String token : tokenize(extractor.getText(items.get(position)))) {
+                    int[] posting = postingMap.get(token);
+                    if (posting == null) {
+                        // The first element stores number of positions
+                        posting = new int[4];
+                        postingMap.put(token, posting);
+                    }
+                    int size = posting[0];
+                    if (size > 0 && posting[size] == position) {
+                        continue;
+                    }
+                    if (size + 1 == posting.length) {
+                        posting = Arrays.copyOf(posting, posting.length * 2);
+                        postingMap.put(token, posting);
+                    }
+                    posting[size + 1] = position;
+                    posting[0] = size + 1;
+                }
+            }
+
+            String[] tokens = postingMap.keySet().toArray(new String[postingMap.size()]);
+            Arrays.sort(tokens);
+            int[][] postings = new int[tokens.length][];
+            for (int i = 0; i < tokens.length; i++) {
+                int[] posting = postingMap.get(tokens[i]);
+                postings[i] = Arrays.copyOfRange(posting, 1, posting[0] + 1);
+            }
+            return new TokenIndex(tokens, postings, items.size());
+        }
+
+        /**
+         * Returns positions of items having words starting with every word of query
+         */
+        BitSet getCandidates(String query) {
+            BitSet result = null;
+            for (String queryToken : tokenize(query)) {
+                BitSet tokenCandidates = new BitSet(itemCount);
+                int index = Arrays.binarySearch(tokens, queryToken);
+                if (index < 0) {
+                    index = -index - 1;
+                }
+                while (index < tokens.length && tokens[index].startsWith(queryToken)) {
+                    for (int position : postings[index]) {
+                        tokenCandidates.set(position);
+                    }
+                    index++;
+                }
+                if (result == null) {
+                    result = tokenCandidates;
+                } else {
+                    result.and(tokenCandidates);
+                }
+            }
+            if (result == null) {
+                result = new BitSet(itemCount);
+                result.set(0, itemCount);
+            }
+            return result;
+        }
+
+        static List<String> tokenize(String text) {
+            List<String> tokens = null;
+            int length = text.length();
+            int start = -1;
+            for (int i = 0; i <= length; i++) {
+                boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+                if (wordChar && start < 0) {
+                    start = i;
+                } else if (!wordChar && start >= 0) {
+                    if (tokens == null) {
+                        tokens = new ArrayList<>();
+                    }
+                    tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                    start = -1;
+                }
+            }
+            return tokens != null ? tokens : Collections.<String>emptyList();
+        }
+    }
+}
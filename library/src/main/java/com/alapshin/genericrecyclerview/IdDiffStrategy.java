@@ -0,0 +1,246 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.util.ListUpdateCallback;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Diff strategy matching items by unique {@link Item#id()}.
+ * <p>
+ * Common prefix and suffix of lists are skipped, so appending, trimming and changing items take
+ * O(n) time. Remaining items are matched using hash map of ids and items which are not part of
+ * the longest increasing subsequence of matched positions are reported as moved, which takes
+ * O(n log n) time. When number of inserted, removed and moved items exceeds given ratio of list
+ * size, changed range is reported as removed and inserted without move animations.
+ * </p>
+ * <p>
+ * Lists containing duplicate ids are compared with {@link MyersDiffStrategy}.
+ * </p>
+ */
+public final class IdDiffStrategy implements DiffStrategy {
+    private static final float DEFAULT_MAX_UPDATE_RATIO = 0.5f;
+
+    private final float maxUpdateRatio;
+    private final DiffStrategy fallback = new MyersDiffStrategy();
+
+    public IdDiffStrategy() {
+        this(DEFAULT_MAX_UPDATE_RATIO);
+    }
+
+    /**
+     * @param maxUpdateRatio maximal ratio of inserted, removed and moved items to list size,
+     *                       larger changes are reported as removal and insertion of changed range
+     */
+    public IdDiffStrategy(float maxUpdateRatio) {
+        this.maxUpdateRatio = maxUpdateRatio;
+    }
+
+    @NonNull
+    @Override
+    public <T extends Item> Result calculateDiff(@NonNull List<T> oldItems, @NonNull List<T> newItems) {
+        int oldSize = oldItems.size();
+        int newSize = newItems.size();
+        int start = 0;
+        int minSize = Math.min(oldSize, newSize);
+        while (start < minSize && oldItems.get(start).id() == newItems.get(start).id()) {
+            start++;
+        }
+        int oldEnd = oldSize;
+        int newEnd = newSize;
+        while (oldEnd > start && newEnd > start && oldItems.get(oldEnd - 1).id() == newItems.get(newEnd - 1).id()) {
+            oldEnd--;
+            newEnd--;
+        }
+
+        final UpdateBatch updates = new UpdateBatch();
+        int[] matches;
+        if (oldEnd == start || newEnd == start) {
+            updates.onRemoved(start, oldEnd - start);
+            updates.onInserted(start, newEnd - start);
+            matches = null;
+        } else {
+            matches = matchRange(oldItems, newItems, start, oldEnd, newEnd);
+            if (matches == null) {
+                return fallback.calculateDiff(oldItems, newItems);
+            }
+            if (!dispatchRangeUpdates(matches, oldEnd - start, start, Math.max(oldSize, newSize), updates)) {
+                updates.onRemoved(start, oldEnd - start);
+                updates.onInserted(start, newEnd - start);
+                matches = null;
+            }
+        }
+
+        // Changes are reported at positions in new list after all structural updates
+        for (int i = 0; i < start; i++) {
+            dispatchChange(oldItems.get(i), newItems.get(i), i, updates);
+        }
+        if (matches != null) {
+            for (int i = 0; i < matches.length; i++) {
+                if (matches[i] >= 0) {
+                    dispatchChange(oldItems.get(start + matches[i]), newItems.get(start + i), start + i, updates);
+                }
+            }
+        }
+        for (int i = newEnd; i < newSize; i++) {
+            dispatchChange(oldItems.get(i - newEnd + oldEnd), newItems.get(i), i, updates);
+        }
+
+        return new Result() {
+            @Override
+            public void dispatchUpdatesTo(@NonNull ListUpdateCallback callback) {
+                updates.dispatchUpdatesTo(callback);
+            }
+        };
+    }
+
+    /**
+     * Returns array of positions of old items matching new items relative to start of range,
+     * -1 for inserted items, or null if items have duplicate ids
+     */
+    private static <T extends Item> int[] matchRange(List<T> oldItems, List<T> newItems, int start,
+                                                     int oldEnd, int newEnd) {
+        int newCount = newEnd - start;
+        IntIntMap newPositions = new IntIntMap(newCount);
+        for (int i = 0; i < newCount; i++) {
+            int id = newItems.get(start + i).id();
+            if (newPositions.containsKey(id)) {
+                return null;
+            }
+            newPositions.put(id, i);
+        }
+        int[] matches = new int[newCount];
+        Arrays.fill(matches, -1);
+        for (int i = 0; i < oldEnd - start; i++) {
+            int position = newPositions.get(oldItems.get(start + i).id(), -1);
+            if (position >= 0) {
+                if (matches[position] >= 0) {
+                    return null;
+                }
+                matches[position] = i;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Records structural updates of range, returns false if there are too many updates to animate
+     */
+    private boolean dispatchRangeUpdates(int[] matches, int oldCount, int start, int size, UpdateBatch updates) {
+        int newCount = matches.length;
+        // Ranks of matched old items among matched items in old order
+        int[] ranks = new int[oldCount];
+        Arrays.fill(ranks, -1);
+        for (int i = 0; i < newCount; i++) {
+            if (matches[i] >= 0) {
+                ranks[matches[i]] = 0;
+            }
+        }
+        int matchedCount = 0;
+        for (int i = 0; i < oldCount; i++) {
+            if (ranks[i] == 0) {
+                ranks[i] = matchedCount++;
+            }
+        }
+        // New positions of matched items in old order
+        int[] sequence = new int[matchedCount];
+        for (int i = 0; i < newCount; i++) {
+            if (matches[i] >= 0) {
+                sequence[ranks[matches[i]]] = i;
+            }
+        }
+        int[] stayed = longestIncreasingSubsequence(sequence);
+
+        int updateCount = oldCount - matchedCount + newCount - matchedCount + matchedCount - stayed.length;
+        if (updateCount > maxUpdateRatio * size) {
+            return false;
+        }
+
+        // Removals from the end, so positions of preceding items are not shifted
+        for (int i = oldCount - 1; i >= 0; i--) {
+            if (ranks[i] < 0) {
+                updates.onRemoved(start + i, 1);
+            }
+        }
+
+        // New items are placed in order, items which stayed keep their places and moved items are
+        // placed after preceding new item. Tree counts moved items not yet placed by rank.
+        int[] pending = new int[matchedCount];
+        Arrays.fill(pending, 1);
+        for (int rank : stayed) {
+            pending[rank] = 0;
+        }
+        FenwickTree pendingTree = FenwickTree.of(pending);
+        int anchorRank = -1;
+        int placedStayedCount = 0;
+        for (int i = 0; i < newCount; i++) {
+            int oldPosition = matches[i];
+            if (oldPosition < 0) {
+                int offset = anchorRank >= 0 ? pendingTree.prefixSum(anchorRank) : 0;
+                updates.onInserted(start + i + offset, 1);
+                continue;
+            }
+            int rank = ranks[oldPosition];
+            if (pending[rank] == 0) {
+                anchorRank = rank;
+                placedStayedCount++;
+                continue;
+            }
+            // Count items preceding moved item: placed items following stayed items with lower
+            // rank, stayed items with lower rank which are not placed yet and pending moved items
+            int stayedBefore = -Arrays.binarySearch(stayed, rank) - 1;
+            int from;
+            if (stayedBefore < stayed.length && sequence[stayed[stayedBefore]] < i) {
+                from = sequence[stayed[stayedBefore]];
+            } else {
+                from = i + stayedBefore - placedStayedCount;
+            }
+            from += start + pendingTree.prefixSum(rank);
+            pendingTree.add(rank, -1);
+            pending[rank] = 0;
+            int to = start + i + (anchorRank >= 0 ? pendingTree.prefixSum(anchorRank) : 0);
+            updates.onMoved(from, to);
+        }
+        return true;
+    }
+
+    /**
+     * Returns increasing indexes of elements forming longest increasing subsequence of distinct values
+     */
+    private static int[] longestIncreasingSubsequence(int[] values) {
+        // tails[k] is index of the smallest tail of increasing subsequence of length k + 1
+        int[] tails = new int[values.length];
+        int[] previous = new int[values.length];
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        int[] result = new int[length];
+        for (int i = length - 1, index = length > 0 ? tails[length - 1] : -1; i >= 0; i--) {
+            result[i] = index;
+            index = previous[index];
+        }
+        return result;
+    }
+
+    private static <T extends Item> void dispatchChange(T oldItem, T newItem, int position, UpdateBatch updates) {
+        if (!DefaultItemProvider.areContentsTheSame(oldItem, newItem)) {
+            updates.onChanged(position, 1, DefaultItemProvider.getChangePayload(oldItem, newItem));
+        }
+    }
+}
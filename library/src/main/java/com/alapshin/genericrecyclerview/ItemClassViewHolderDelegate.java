@@ -0,0 +1,26 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * {@link ViewHolderDelegate} that is responsible for all items which are instances of given class.
+ * <p>
+ * {@link ViewHolderDelegateManager} memoizes view type per item class, so it is resolved only once
+ * for every concrete item class.
+ * </p>
+ *
+ * @param <T> item type
+ * @param <VH> view holder type
+ */
+public interface ItemClassViewHolderDelegate<T extends Item, VH extends RecyclerView.ViewHolder>
+        extends ViewHolderDelegate<T, VH> {
+    /**
+     * Called when delegates of {@link ViewHolderDelegateManager} are added or removed, returned
+     * value must not change while delegate is added to manager
+     *
+     * @return class of items handled by this delegate
+     */
+    @NonNull
+    Class<? extends T> getItemClass();
+}
@@ -0,0 +1,164 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columns of item ids and resolved view types parallel to list of items.
+ * <p>
+ * Column of view types is kept only if resolver is set. View types are resolved on the first
+ * lookup, so order of adding delegates and setting items doesn't matter, and are discarded by
+ * {@link #invalidateViewTypes()} when delegates of resolver change. Not thread safe, but columns
+ * for new items can be computed on background thread and then passed to the main thread.
+ * </p>
+ *
+ * @param <T> item type
+ */
+final class ItemColumns<T extends Item> {
+    private static final int[] EMPTY = new int[0];
+    /**
+     * Marks view type which is not resolved yet
+     */
+    private static final int UNRESOLVED = Integer.MIN_VALUE;
+
+    @Nullable
+    private ViewTypeResolver<T> resolver;
+    private int[] ids = EMPTY;
+    private int[] viewTypes;
+    private int size;
+
+    ItemColumns(@Nullable ViewTypeResolver<T> resolver) {
+        this.resolver = resolver;
+        this.viewTypes = resolver != null ? EMPTY : null;
+    }
+
+    /**
+     * Creates columns for given items
+     */
+    static <T extends Item> ItemColumns<T> of(List<T> items, @Nullable ViewTypeResolver<T> resolver) {
+        ItemColumns<T> columns = new ItemColumns<>(resolver);
+        columns.insert(0, items);
+        return columns;
+    }
+
+    @Nullable
+    ViewTypeResolver<T> getResolver() {
+        return resolver;
+    }
+
+    /**
+     * Replaces resolver discarding resolved view types
+     */
+    void setResolver(@Nullable ViewTypeResolver<T> resolver) {
+        this.resolver = resolver;
+        if (resolver == null) {
+            viewTypes = null;
+            return;
+        }
+        viewTypes = new int[ids.length];
+        Arrays.fill(viewTypes, 0, size, UNRESOLVED);
+    }
+
+    /**
+     * Discards resolved view types, so they are resolved again on the next lookup
+     */
+    void invalidateViewTypes() {
+        if (viewTypes != null) {
+            Arrays.fill(viewTypes, 0, size, UNRESOLVED);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getId(int position) {
+        checkPosition(position);
+        return ids[position];
+    }
+
+    /**
+     * Returns view type of item at position, item is taken from given list only if view type
+     * isn't resolved yet
+     */
+    int getViewType(int position, List<T> items) {
+        if (viewTypes == null) {
+            throw new IllegalStateException("No ViewTypeResolver set to provider");
+        }
+        checkPosition(position);
+        int viewType = viewTypes[position];
+        if (viewType == UNRESOLVED) {
+            viewType = resolver.getItemViewType(items.get(position));
+            viewTypes[position] = viewType;
+        }
+        return viewType;
+    }
+
+    void insert(int position, T item) {
+        open(position, 1);
+        fill(position, item);
+    }
+
+    void insert(int position, List<T> items) {
+        int count = items.size();
+        open(position, count);
+        for (int i = 0; i < count; i++) {
+            fill(position + i, items.get(i));
+        }
+    }
+
+    void set(int position, T item) {
+        checkPosition(position);
+        fill(position, item);
+    }
+
+    void remove(int position) {
+        checkPosition(position);
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        if (viewTypes != null) {
+            System.arraycopy(viewTypes, position + 1, viewTypes, position, size - position - 1);
+        }
+        size--;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Makes room for count values at position
+     */
+    private void open(int position, int count) {
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException("Invalid position " + position + ", size is " + size);
+        }
+        int newSize = size + count;
+        if (newSize > ids.length) {
+            int capacity = Math.max(newSize, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, capacity);
+            if (viewTypes != null) {
+                viewTypes = Arrays.copyOf(viewTypes, capacity);
+            }
+        }
+        System.arraycopy(ids, position, ids, position + count, size - position);
+        if (viewTypes != null) {
+            System.arraycopy(viewTypes, position, viewTypes, position + count, size - position);
+        }
+        size = newSize;
+    }
+
+    private void fill(int position, T item) {
+        ids[position] = item.id();
+        if (viewTypes != null) {
+            viewTypes[position] = UNRESOLVED;
+        }
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Invalid position " + position + ", size is " + size);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.alapshin.genericrecyclerview;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.AnyThread;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Queue of modifications of {@link DefaultItemProvider} which can be submitted from any thread.
+ * <p>
+ * Submitted modifications are applied on the main thread once per frame in submission order.
+ * Modifications applied in one frame are wrapped in {@link DefaultItemProvider#beginBatch()}
+ * and {@link DefaultItemProvider#commit()}, so adapter receives merged range notifications.
+ * Modifications followed by {@link #setItems(List)} in the same frame are skipped. While difference
+ * between provider items and items passed to {@link DefaultItemProvider#setItems(List)} is calculated
+ * on provider diff executor, modifications are kept in the queue and draining is resumed on the first
+ * frame after provider notifies that new items are set, so no frames are spent waiting for them.
+ * On API levels without {@link Choreographer} queue is drained from main thread handler.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class ItemMutationQueue<T extends Item> {
+    /**
+     * Modification of provider items applied on the main thread
+     */
+    public interface Mutation<T extends Item> {
+        void apply(@NonNull DefaultItemProvider<T> provider);
+    }
+
+    private final DefaultItemProvider<T> provider;
+    private final ConcurrentLinkedQueue<Mutation<T>> mutations = new ConcurrentLinkedQueue<>();
+    /**
+     * Whether drain of the queue is scheduled
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+    private final Handler handler;
+    private final FrameScheduler frameScheduler;
+    /**
+     * Modifications drained from the queue and not applied yet, reused between frames
+     */
+    private final List<Mutation<T>> drained = new ArrayList<>();
+    private boolean draining;
+    private final OnItemsUpdatedListener itemsUpdatedListener = new OnItemsUpdatedListener() {
+        @Override
+        public void onItemsUpdated() {
+            // Items set synchronously during drain don't need another one
+            if (!draining && !drained.isEmpty()) {
+                schedule();
+            }
+        }
+    };
+
+    /**
+     * Creates queue of modifications of given provider
+     *
+     * @param provider provider to apply modifications to
+     */
+    @MainThread
+    public ItemMutationQueue(@NonNull DefaultItemProvider<T> provider) {
+        this.provider = provider;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            handler = null;
+            frameScheduler = new FrameScheduler(drain);
+        } else {
+            handler = new Handler(Looper.getMainLooper());
+            frameScheduler = null;
+        }
+        provider.addOnItemsUpdatedListener(itemsUpdatedListener);
+    }
+
+    /**
+     * Submits modification to be applied on the next frame
+     *
+     * @param mutation modification
+     */
+    @AnyThread
+    public void submit(@NonNull Mutation<T> mutation) {
+        mutations.add(mutation);
+        schedule();
+    }
+
+    /**
+     * Submits addition of item to the end of provider items
+     *
+     * @param item item to add
+     */
+    @AnyThread
+    public void addItem(@NonNull final T item) {
+        submit(new Mutation<T>() {
+            @Override
+            public void apply(@NonNull DefaultItemProvider<T> provider) {
+                provider.addItem(item);
+            }
+        });
+    }
+
+    /**
+     * Submits addition of items to the end of provider items
+     *
+     * @param items items to add, list must not be modified after this call
+     */
+    @AnyThread
+    public void addItems(@NonNull final List<T> items) {
+        submit(new Mutation<T>() {
+            @Override
+            public void apply(@NonNull DefaultItemProvider<T> provider) {
+                provider.addItems(items);
+            }
+        });
+    }
+
+    /**
+     * Submits replacement of item having the same id as given item, item is ignored if there
+     * is no such item when modification is applied
+     *
+     * @param item new item
+     * @see DefaultItemProvider#updateById(Item)
+     */
+    @AnyThread
+    public void updateById(@NonNull final T item) {
+        submit(new Mutation<T>() {
+            @Override
+            public void apply(@NonNull DefaultItemProvider<T> provider) {
+                provider.updateById(item);
+            }
+        });
+    }
+
+    /**
+     * Submits removal of item with given id
+     *
+     * @param id item id
+     * @see DefaultItemProvider#removeById(int)
+     */
+    @AnyThread
+    public void removeById(final int id) {
+        submit(new Mutation<T>() {
+            @Override
+            public void apply(@NonNull DefaultItemProvider<T> provider) {
+                provider.removeById(id);
+            }
+        });
+    }
+
+    /**
+     * Submits replacement of all provider items
+     *
+     * @param items new items, list must not be modified after this call
+     * @see DefaultItemProvider#setItems(List)
+     */
+    @AnyThread
+    public void setItems(@NonNull List<T> items) {
+        submit(new SetItemsMutation<T>(items));
+    }
+
+    /**
+     * Applies submitted modifications immediately, modifications are kept in the queue while
+     * provider items update is pending
+     *
+     * @see DefaultItemProvider#isUpdatePending()
+     */
+    @MainThread
+    public void flush() {
+        drain();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            if (frameScheduler != null) {
+                frameScheduler.schedule();
+            } else {
+                handler.post(drain);
+            }
+        }
+    }
+
+    private void drain() {
+        // Reset flag before polling, so modifications submitted during drain schedule next one
+        scheduled.set(false);
+        Mutation<T> mutation;
+        while ((mutation = mutations.poll()) != null) {
+            drained.add(mutation);
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < drained.size(); i++) {
+            if (drained.get(i) instanceof SetItemsMutation) {
+                start = i;
+            }
+        }
+
+        // Applying stops when setItems() starts asynchronous difference calculation, because
+        // provider can't be modified until new items are set, the rest is applied after
+        // provider notifies items updated listener
+        int end = start;
+        draining = true;
+        provider.beginBatch();
+        try {
+            while (end < drained.size() && !provider.isUpdatePending()) {
+                drained.get(end++).apply(provider);
+            }
+        } finally {
+            draining = false;
+            drained.subList(0, end).clear();
+            provider.commit();
+        }
+    }
+
+    private static final class SetItemsMutation<T extends Item> implements Mutation<T> {
+        private final List<T> items;
+
+        SetItemsMutation(List<T> items) {
+            this.items = items;
+        }
+
+        @Override
+        public void apply(@NonNull DefaultItemProvider<T> provider) {
+            provider.setItems(items);
+        }
+    }
+
+    /**
+     * Posts frame callbacks, kept in separate class so that {@link Choreographer} is not loaded
+     * on API levels where it does not exist
+     */
+    private static final class FrameScheduler implements Choreographer.FrameCallback {
+        private final Choreographer choreographer = Choreographer.getInstance();
+        private final Runnable callback;
+
+        FrameScheduler(Runnable callback) {
+            this.callback = callback;
+        }
+
+        void schedule() {
+            choreographer.postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            callback.run();
+        }
+    }
+}
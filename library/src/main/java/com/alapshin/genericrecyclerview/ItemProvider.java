@@ -1,5 +1,6 @@
 package com.alapshin.genericrecyclerview;
 
+import android.support.annotation.Nullable;
 import android.support.v7.widget.RecyclerView;
 
 import java.util.List;
@@ -69,6 +70,14 @@ public interface ItemProvider<T extends Item> {
      */
     void setItem(int position, T item);
 
+    /**
+     * Set item at position and notify adapter with change payload
+     * @param position item position in the provider
+     * @param item item
+     * @param payload change payload, see {@link RecyclerView.Adapter#notifyItemChanged(int, Object)}
+     */
+    void setItem(int position, T item, @Nullable Object payload);
+
     /**
      * Set provider items
      * @param items {@link java.util.List} of items
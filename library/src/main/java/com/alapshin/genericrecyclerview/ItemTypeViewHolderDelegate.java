@@ -0,0 +1,26 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * {@link ViewHolderDelegate} that declares {@link Item#type()} values it is responsible for.
+ * <p>
+ * {@link ViewHolderDelegateManager} resolves view type of such items with a single table lookup
+ * instead of calling {@link #isForViewType(Item)} of every registered delegate.
+ * </p>
+ *
+ * @param <T> item type
+ * @param <VH> view holder type
+ */
+public interface ItemTypeViewHolderDelegate<T extends Item, VH extends RecyclerView.ViewHolder>
+        extends ViewHolderDelegate<T, VH> {
+    /**
+     * Called when delegates of {@link ViewHolderDelegateManager} are added or removed, returned
+     * value must not change while delegate is added to manager
+     *
+     * @return {@link Item#type()} values handled by this delegate
+     */
+    @NonNull
+    int[] getItemTypes();
+}
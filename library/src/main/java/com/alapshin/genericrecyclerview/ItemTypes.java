@@ -0,0 +1,23 @@
+package com.alapshin.genericrecyclerview;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares {@link Item#type()} values handled by {@link ItemTypeViewHolderDelegate} at compile time.
+ * <p>
+ * Required for item type delegates listed in {@link DelegateDispatcher}, generated dispatcher
+ * switches on declared values. Declared values must equal values returned by
+ * {@link ItemTypeViewHolderDelegate#getItemTypes()}, this is checked when dispatcher is created.
+ * </p>
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface ItemTypes {
+    /**
+     * @return item types
+     */
+    int[] value();
+}
@@ -0,0 +1,25 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * {@link ViewHolderDelegate} declaring key of its view type in {@link ViewTypeRegistry}.
+ * <p>
+ * By default delegate class is used as key. Delegates whose view holders depend on delegate
+ * instance state should declare keys distinguishing such instances.
+ * </p>
+ *
+ * @param <T> item type
+ * @param <VH> view holder type
+ */
+public interface KeyedViewHolderDelegate<T extends Item, VH extends RecyclerView.ViewHolder>
+        extends ViewHolderDelegate<T, VH> {
+    /**
+     * Returns view type key. Delegates with equal keys must create interchangeable view holders.
+     *
+     * @return key with proper equals and hashCode
+     */
+    @NonNull
+    Object getViewTypeKey();
+}
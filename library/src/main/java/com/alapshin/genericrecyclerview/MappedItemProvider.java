@@ -0,0 +1,345 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v7.widget.RecyclerView;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only {@link ItemProvider} backed by memory-mapped file of fixed-size records.
+ * <p>
+ * Every record starts with 4 byte item id followed by 4 byte item type, the rest of record is
+ * decoded by {@link RecordDecoder}. Items are decoded only when requested, so provider memory
+ * usage doesn't depend on number of records. {@link #getItemCount()}, {@link #getItemId(int)} and
+ * {@link #getItemType(int)} read mapped file directly and don't allocate.
+ * {@link #getItemViewType(int)} decodes record into single reused item and caches resolved view
+ * type in fixed-size table indexed by position, so scrolling back and forth over the same records
+ * reads cached view types without decoding.
+ * </p>
+ * <p>
+ * Files larger than 2 GB are mapped by several chunks.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class MappedItemProvider<T extends Item> implements ViewTypeColumnProvider<T>, Closeable {
+    /**
+     * Decoder of record fields into items
+     *
+     * @param <T> item type
+     */
+    public interface RecordDecoder<T extends Item> {
+        /**
+         * Creates empty item to decode record into
+         * @return new item
+         */
+        @NonNull
+        T createItem();
+
+        /**
+         * Decodes record into item
+         * @param buffer buffer containing record
+         * @param offset offset of record start in buffer
+         * @param item item to decode record into, previous item state should be overwritten
+         */
+        void decode(@NonNull ByteBuffer buffer, int offset, @NonNull T item);
+    }
+
+    /**
+     * Offset of item id in record
+     */
+    public static final int ID_OFFSET = 0;
+    /**
+     * Offset of item type in record
+     */
+    public static final int TYPE_OFFSET = 4;
+    /**
+     * Minimum record size containing item id and type
+     */
+    public static final int MIN_RECORD_SIZE = 8;
+
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
+    /**
+     * Number of cached view types, power of two
+     */
+    private static final int VIEW_TYPE_CACHE_SIZE = 512;
+
+    private final RecordDecoder<T> decoder;
+    private final int recordSize;
+    private final int recordsPerChunk;
+    private final int itemCount;
+    private final MappedByteBuffer[] chunks;
+
+    private ViewTypeResolver<T> resolver;
+    /**
+     * Item reused to resolve view types
+     */
+    private T flyweight;
+    /**
+     * Positions of cached view types, slot of position is position modulo cache size
+     */
+    private final int[] cachedPositions = new int[VIEW_TYPE_CACHE_SIZE];
+    private final int[] cachedViewTypes = new int[VIEW_TYPE_CACHE_SIZE];
+    private final ViewHolderDelegateManager.OnDelegatesChangedListener delegatesChangedListener =
+            new ViewHolderDelegateManager.OnDelegatesChangedListener() {
+                @Override
+                public void onDelegatesChanged() {
+                    invalidateViewTypes();
+                }
+            };
+    private boolean closed;
+
+    /**
+     * Maps file with records in big-endian byte order
+     *
+     * @param file file with records
+     * @param recordSize size of each record in bytes
+     * @param decoder decoder of records
+     * @throws IOException if file can't be mapped
+     */
+    public MappedItemProvider(@NonNull File file, int recordSize, @NonNull RecordDecoder<T> decoder)
+            throws IOException {
+        this(file, recordSize, ByteOrder.BIG_ENDIAN, decoder);
+    }
+
+    /**
+     * Maps file with records
+     *
+     * @param file file with records
+     * @param recordSize size of each record in bytes
+     * @param order byte order of records
+     * @param decoder decoder of records
+     * @throws IOException if file can't be mapped
+     */
+    public MappedItemProvider(@NonNull File file, int recordSize, @NonNull ByteOrder order,
+                              @NonNull RecordDecoder<T> decoder) throws IOException {
+        this(file, recordSize, order, decoder, MAX_CHUNK_SIZE);
+    }
+
+    /**
+     * Maps file with records by chunks of at most given size
+     */
+    @VisibleForTesting
+    MappedItemProvider(@NonNull File file, int recordSize, @NonNull ByteOrder order,
+                       @NonNull RecordDecoder<T> decoder, int maxChunkSize) throws IOException {
+        if (recordSize < MIN_RECORD_SIZE || recordSize > maxChunkSize) {
+            throw new IllegalArgumentException("Invalid record size " + recordSize);
+        }
+        this.decoder = decoder;
+        this.recordSize = recordSize;
+        this.recordsPerChunk = maxChunkSize / recordSize;
+        invalidateViewTypes();
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long count = channel.size() / recordSize;
+            if (count > Integer.MAX_VALUE) {
+                throw new IOException("File " + file + " contains too many records: " + count);
+            }
+            itemCount = (int) count;
+
+            int chunkCount = (itemCount + recordsPerChunk - 1) / recordsPerChunk;
+            chunks = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long position = (long) i * recordsPerChunk * recordSize;
+                long size = (long) Math.min(recordsPerChunk, itemCount - i * recordsPerChunk) * recordSize;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                chunks[i].order(order);
+            }
+        } finally {
+            // Mappings stay valid after channel is closed
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemCount() {
+        checkNotClosed();
+        return itemCount;
+    }
+
+    @Override
+    public int getItemId(int position) {
+        checkPosition(position);
+        return chunks[position / recordsPerChunk].getInt(offsetOf(position) + ID_OFFSET);
+    }
+
+    /**
+     * Get type of item at position without decoding item
+     * @param position item position
+     * @return item type
+     */
+    public int getItemType(int position) {
+        checkPosition(position);
+        return chunks[position / recordsPerChunk].getInt(offsetOf(position) + TYPE_OFFSET);
+    }
+
+    @Override
+    public void setViewTypeResolver(@Nullable ViewTypeResolver<T> resolver) {
+        ViewHolderDelegateManager.moveOnDelegatesChangedListener(this.resolver, resolver, delegatesChangedListener);
+        this.resolver = resolver;
+        invalidateViewTypes();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Record is decoded into item reused by subsequent calls, so resolver must not keep
+     * reference to passed item.
+     * </p>
+     */
+    @Override
+    public int getItemViewType(int position) {
+        if (resolver == null) {
+            throw new IllegalStateException("No ViewTypeResolver set to provider");
+        }
+        checkPosition(position);
+        int slot = position & (VIEW_TYPE_CACHE_SIZE - 1);
+        if (cachedPositions[slot] == position) {
+            return cachedViewTypes[slot];
+        }
+        if (flyweight == null) {
+            flyweight = decoder.createItem();
+        }
+        int viewType = resolver.getItemViewType(getItem(position, flyweight));
+        cachedPositions[slot] = position;
+        cachedViewTypes[slot] = viewType;
+        return viewType;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every call decodes new item, use {@link #getItem(int, Item)} to reuse existing one.
+     * </p>
+     */
+    @Override
+    public T getItem(int position) {
+        return getItem(position, decoder.createItem());
+    }
+
+    /**
+     * Decodes item at position into given item
+     *
+     * @param position item position
+     * @param item item to decode into
+     * @return passed item
+     */
+    @NonNull
+    public T getItem(int position, @NonNull T item) {
+        checkPosition(position);
+        decoder.decode(chunks[position / recordsPerChunk], offsetOf(position), item);
+        return item;
+    }
+
+    /**
+     * Not supported, provider items can't be materialized
+     */
+    @Override
+    public List<T> getItems() {
+        throw new UnsupportedOperationException("MappedItemProvider doesn't support getItems()");
+    }
+
+    @Override
+    public void addItem(T item) {
+        throw new UnsupportedOperationException("MappedItemProvider is read-only");
+    }
+
+    @Override
+    public void addItem(int position, T item) {
+        throw new UnsupportedOperationException("MappedItemProvider is read-only");
+    }
+
+    @Override
+    public void addItems(List<T> items) {
+        throw new UnsupportedOperationException("MappedItemProvider is read-only");
+    }
+
+    @Override
+    public void addItems(int position, List<T> items) {
+        throw new UnsupportedOperationException("MappedItemProvider is read-only");
+    }
+
+    @Override
+    public void setItem(int position, T item) {
+        throw new UnsupportedOperationException("MappedItemProvider is read-only");
+    }
+
+    @Override
+    public void setItem(int position, T item, Object payload) {
+        throw new UnsupportedOperationException("MappedItemProvider is read-only");
+    }
+
+    @Override
+    public void setItems(List<T> items) {
+        throw new UnsupportedOperationException("MappedItemProvider is read-only");
+    }
+
+    @Override
+    public void removeItem(int position) {
+        throw new UnsupportedOperationException("MappedItemProvider is read-only");
+    }
+
+    @Override
+    public void removeItems() {
+        throw new UnsupportedOperationException("MappedItemProvider is read-only");
+    }
+
+    /**
+     * Provider content never changes, so adapter is never notified
+     */
+    @Override
+    public void setAdapter(RecyclerView.Adapter adapter) {
+    }
+
+    /**
+     * Releases references to mapped buffers. Mapping is released when buffers are garbage collected.
+     * Provider can't be used after it is closed, detach it from adapter first.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = null;
+        }
+    }
+
+    /**
+     * Discards cached view types, so they are resolved again on the next lookup
+     */
+    private void invalidateViewTypes() {
+        Arrays.fill(cachedPositions, -1);
+    }
+
+    private int offsetOf(int position) {
+        return (position % recordsPerChunk) * recordSize;
+    }
+
+    private void checkNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("MappedItemProvider is closed");
+        }
+    }
+
+    private void checkPosition(int position) {
+        checkNotClosed();
+        if (position < 0 || position >= itemCount) {
+            throw new IndexOutOfBoundsException("Invalid position " + position + ", size is " + itemCount);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+
+import java.util.List;
+
+/**
+ * Diff strategy using {@link DiffUtil}, which implements Myers difference algorithm.
+ * <p>
+ * Takes O(N + D^2) time where D is the length of edit script, or more with move detection enabled.
+ * Items are matched by id and compared by {@link VersionedItem#version()} or with
+ * {@link Object#equals(Object)}.
+ * </p>
+ */
+public final class MyersDiffStrategy implements DiffStrategy {
+    private final boolean detectMoves;
+
+    public MyersDiffStrategy() {
+        this(true);
+    }
+
+    /**
+     * @param detectMoves whether moved items should be detected
+     */
+    public MyersDiffStrategy(boolean detectMoves) {
+        this.detectMoves = detectMoves;
+    }
+
+    @NonNull
+    @Override
+    public <T extends Item> Result calculateDiff(@NonNull List<T> oldItems, @NonNull List<T> newItems) {
+        final DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                new DefaultItemProvider.DiffUtilCallback<>(oldItems, newItems), detectMoves);
+        return new Result() {
+            @Override
+            public void dispatchUpdatesTo(@NonNull ListUpdateCallback callback) {
+                result.dispatchUpdatesTo(callback);
+            }
+        };
+    }
+}
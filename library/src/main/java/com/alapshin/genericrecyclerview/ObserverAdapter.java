@@ -0,0 +1,34 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+/**
+ * Adapter without views used to observe notifications of {@link ItemProvider} which is not
+ * attached to real adapter
+ */
+final class ObserverAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+    private final ItemProvider<?> itemProvider;
+
+    ObserverAdapter(@NonNull ItemProvider<?> itemProvider, @NonNull RecyclerView.AdapterDataObserver observer) {
+        this.itemProvider = itemProvider;
+        registerAdapterDataObserver(observer);
+        itemProvider.setAdapter(this);
+    }
+
+    @Override
+    public int getItemCount() {
+        return itemProvider.getItemCount();
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        throw new UnsupportedOperationException("ObserverAdapter doesn't create views");
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        throw new UnsupportedOperationException("ObserverAdapter doesn't bind views");
+    }
+}
@@ -0,0 +1,11 @@
+package com.alapshin.genericrecyclerview;
+
+/**
+ * Callback invoked on the main thread once items passed to
+ * {@link DefaultItemProvider#setItems(java.util.List, OnItemsUpdatedListener)} or
+ * {@link PersistentItemProvider#setItems(java.util.List, OnItemsUpdatedListener)} became provider
+ * items and their updates have been dispatched to adapter
+ */
+public interface OnItemsUpdatedListener {
+    void onItemsUpdated();
+}
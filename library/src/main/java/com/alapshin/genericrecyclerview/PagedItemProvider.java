@@ -0,0 +1,437 @@
+package com.alapshin.genericrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.support.v4.util.SparseArrayCompat;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseBooleanArray;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Read-only {@link ItemProvider} loading items by fixed-size pages from {@link PageSource}.
+ * <p>
+ * Pages are loaded on background executor when positions within prefetch distance are requested
+ * from provider. Until page is loaded its positions are occupied by placeholder items. Number of
+ * loaded pages is bounded, when the limit is exceeded pages outside of prefetch distance from the
+ * last requested page are evicted, pages which were never requested first and then least recently
+ * requested ones. Pages of items bound to visible views are requested more recently than pages
+ * scrolled away, so they are kept as long as the limit exceeds number of visible pages.
+ * </p>
+ * <p>
+ * Page which failed to load is reported to {@link OnPageLoadErrorListener} and loaded again when
+ * its positions are requested next time. Without listener the error is rethrown on the main thread.
+ * </p>
+ * <p>
+ * Provider is empty until {@link #refresh()} is called. It doesn't support modification methods,
+ * use {@link #refresh()} to reload items.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class PagedItemProvider<T extends Item> implements ItemProvider<T> {
+    /**
+     * Source of provider items
+     *
+     * @param <T> item type
+     */
+    public interface PageSource<T extends Item> {
+        /**
+         * Returns total number of items
+         * @return number of items
+         */
+        @WorkerThread
+        int getItemCount();
+
+        /**
+         * Loads items in range
+         * @param position position of the first item to load
+         * @param count number of items to load
+         * @return loaded items
+         */
+        @WorkerThread
+        @NonNull
+        List<T> loadItems(int position, int count);
+    }
+
+    /**
+     * Factory of items shown while page is loaded
+     *
+     * @param <T> item type
+     */
+    public interface PlaceholderFactory<T extends Item> {
+        /**
+         * Creates placeholder for given position. Placeholders for different positions must have
+         * different ids.
+         * @param position item position
+         * @return placeholder item
+         */
+        @NonNull
+        T createPlaceholder(int position);
+
+        /**
+         * Returns id of placeholder for given position without creating it
+         * @param position item position
+         * @return placeholder id
+         */
+        int getPlaceholderId(int position);
+    }
+
+    /**
+     * Listener notified on the main thread when page fails to load
+     */
+    public interface OnPageLoadErrorListener {
+        /**
+         * Called when {@link PageSource#loadItems(int, int)} throws
+         * @param position position of the first item of page
+         * @param count number of items of page
+         * @param error thrown exception
+         */
+        void onPageLoadError(int position, int count, @NonNull RuntimeException error);
+    }
+
+    private static final int DEFAULT_PREFETCH_DISTANCE = 1;
+    private static final int DEFAULT_MAX_PAGES = 16;
+
+    private final PageSource<T> pageSource;
+    private final PlaceholderFactory<T> placeholderFactory;
+    private final int pageSize;
+    private final Executor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private RecyclerView.Adapter adapter;
+    private OnPageLoadErrorListener errorListener;
+    private int itemCount;
+    private int prefetchDistance = DEFAULT_PREFETCH_DISTANCE;
+    private int maxPages = DEFAULT_MAX_PAGES;
+    /**
+     * Loaded pages by page index
+     */
+    private final SparseArrayCompat<Page<T>> pages = new SparseArrayCompat<>();
+    private final SparseBooleanArray loadingPages = new SparseBooleanArray();
+    private int lastRequestedPage = -1;
+    /**
+     * Incremented on every item request to order pages by the last access
+     */
+    private long accessCount;
+    /**
+     * Incremented on every {@link #refresh()} call to discard stale load results
+     */
+    private int generation;
+
+    public PagedItemProvider(@NonNull PageSource<T> pageSource, @NonNull PlaceholderFactory<T> placeholderFactory,
+                             int pageSize, @NonNull Executor executor) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.pageSource = pageSource;
+        this.placeholderFactory = placeholderFactory;
+        this.pageSize = pageSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Set number of pages around requested page which are loaded in advance
+     * @param prefetchDistance number of pages
+     */
+    public void setPrefetchDistance(int prefetchDistance) {
+        if (prefetchDistance < 0) {
+            throw new IllegalArgumentException("Prefetch distance must not be negative: " + prefetchDistance);
+        }
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    /**
+     * Set maximum number of pages kept in memory. Pages within prefetch distance from the last
+     * requested page are never evicted, so actual number of pages may exceed this limit.
+     * @param maxPages number of pages
+     */
+    public void setMaxPages(int maxPages) {
+        if (maxPages <= 0) {
+            throw new IllegalArgumentException("Max pages must be positive: " + maxPages);
+        }
+        this.maxPages = maxPages;
+        evictPages();
+    }
+
+    /**
+     * Set listener notified when page fails to load
+     * @param listener listener or null to rethrow errors on the main thread
+     */
+    public void setOnPageLoadErrorListener(@Nullable OnPageLoadErrorListener listener) {
+        this.errorListener = listener;
+    }
+
+    /**
+     * Discards loaded pages and reloads number of items from page source
+     */
+    public void refresh() {
+        final int generation = ++this.generation;
+        pages.clear();
+        loadingPages.clear();
+        lastRequestedPage = -1;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int count = pageSource.getItemCount();
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == PagedItemProvider.this.generation) {
+                            setItemCount(count);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns whether item at position is loaded
+     * @param position item position
+     * @return true if item is loaded, false if placeholder is shown for it
+     */
+    public boolean isItemLoaded(int position) {
+        return pages.get(position / pageSize) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns placeholder id without creating placeholder if item is not loaded yet and starts
+     * loading pages around item.
+     * </p>
+     */
+    @Override
+    public int getItemId(int position) {
+        T item = getLoadedItem(position);
+        return item != null ? item.id() : placeholderFactory.getPlaceholderId(position);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns placeholder if item is not loaded yet and starts loading pages around item.
+     * </p>
+     */
+    @Override
+    public T getItem(int position) {
+        T item = getLoadedItem(position);
+        return item != null ? item : placeholderFactory.createPlaceholder(position);
+    }
+
+    /**
+     * Not supported, provider items can't be materialized
+     */
+    @Override
+    public List<T> getItems() {
+        throw new UnsupportedOperationException("PagedItemProvider doesn't support getItems()");
+    }
+
+    @Override
+    public void addItem(T item) {
+        throw new UnsupportedOperationException("PagedItemProvider is read-only");
+    }
+
+    @Override
+    public void addItem(int position, T item) {
+        throw new UnsupportedOperationException("PagedItemProvider is read-only");
+    }
+
+    @Override
+    public void addItems(List<T> items) {
+        throw new UnsupportedOperationException("PagedItemProvider is read-only");
+    }
+
+    @Override
+    public void addItems(int position, List<T> items) {
+        throw new UnsupportedOperationException("PagedItemProvider is read-only");
+    }
+
+    @Override
+    public void setItem(int position, T item) {
+        throw new UnsupportedOperationException("PagedItemProvider is read-only");
+    }
+
+    @Override
+    public void setItem(int position, T item, Object payload) {
+        throw new UnsupportedOperationException("PagedItemProvider is read-only");
+    }
+
+    @Override
+    public void setItems(List<T> items) {
+        throw new UnsupportedOperationException("PagedItemProvider is read-only");
+    }
+
+    @Override
+    public void removeItem(int position) {
+        throw new UnsupportedOperationException("PagedItemProvider is read-only");
+    }
+
+    @Override
+    public void removeItems() {
+        throw new UnsupportedOperationException("PagedItemProvider is read-only");
+    }
+
+    @Override
+    public void setAdapter(RecyclerView.Adapter adapter) {
+        this.adapter = adapter;
+    }
+
+    /**
+     * Returns loaded item at position or null if its page is not loaded, starts loading pages around item
+     */
+    @Nullable
+    private T getLoadedItem(int position) {
+        if (position < 0 || position >= itemCount) {
+            throw new IndexOutOfBoundsException("Invalid position " + position + ", size is " + itemCount);
+        }
+        int page = position / pageSize;
+        loadAround(page);
+        Page<T> loadedPage = pages.get(page);
+        int index = position - page * pageSize;
+        if (loadedPage == null || index >= loadedPage.items.size()) {
+            return null;
+        }
+        loadedPage.lastAccess = ++accessCount;
+        return loadedPage.items.get(index);
+    }
+
+    private void setItemCount(int count) {
+        int oldCount = itemCount;
+        itemCount = count;
+        if (adapter == null) {
+            return;
+        }
+        int commonCount = Math.min(oldCount, count);
+        if (commonCount > 0) {
+            adapter.notifyItemRangeChanged(0, commonCount);
+        }
+        if (count > oldCount) {
+            adapter.notifyItemRangeInserted(oldCount, count - oldCount);
+        } else if (count < oldCount) {
+            adapter.notifyItemRangeRemoved(count, oldCount - count);
+        }
+    }
+
+    private void loadAround(int page) {
+        if (page == lastRequestedPage) {
+            return;
+        }
+        lastRequestedPage = page;
+        int pageCount = (itemCount + pageSize - 1) / pageSize;
+        int firstPage = Math.max(0, page - prefetchDistance);
+        int lastPage = Math.min(pageCount - 1, page + prefetchDistance);
+        // Load requested page first, then pages around it
+        loadPage(page);
+        for (int i = firstPage; i <= lastPage; i++) {
+            loadPage(i);
+        }
+    }
+
+    private void loadPage(final int page) {
+        if (pages.get(page) != null || loadingPages.get(page)) {
+            return;
+        }
+        loadingPages.put(page, true);
+        final int generation = this.generation;
+        final int position = page * pageSize;
+        final int count = Math.min(pageSize, itemCount - position);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<T> items;
+                try {
+                    items = pageSource.loadItems(position, count);
+                } catch (final RuntimeException e) {
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onPageLoadFailed(generation, page, count, e);
+                        }
+                    });
+                    return;
+                }
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoaded(generation, page, items);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onPageLoaded(int generation, int page, List<T> items) {
+        if (generation != this.generation) {
+            return;
+        }
+        loadingPages.delete(page);
+        pages.put(page, new Page<>(items));
+        evictPages();
+
+        int position = page * pageSize;
+        int count = Math.min(Math.min(pageSize, items.size()), itemCount - position);
+        if (adapter != null && count > 0) {
+            adapter.notifyItemRangeChanged(position, count);
+        }
+    }
+
+    private void onPageLoadFailed(int generation, int page, int count, RuntimeException error) {
+        if (generation != this.generation) {
+            return;
+        }
+        loadingPages.delete(page);
+        // Page is loaded again when it is requested next time
+        lastRequestedPage = -1;
+        if (errorListener == null) {
+            throw error;
+        }
+        errorListener.onPageLoadError(page * pageSize, count, error);
+    }
+
+    /**
+     * Evicts least recently requested pages outside of prefetch distance until page limit is satisfied
+     */
+    private void evictPages() {
+        while (pages.size() > maxPages) {
+            int evicted = -1;
+            long evictedAccess = Long.MAX_VALUE;
+            for (int i = 0; i < pages.size(); i++) {
+                long lastAccess = pages.valueAt(i).lastAccess;
+                if (lastAccess < evictedAccess && Math.abs(pages.keyAt(i) - lastRequestedPage) > prefetchDistance) {
+                    evicted = i;
+                    evictedAccess = lastAccess;
+                }
+            }
+            if (evicted < 0) {
+                return;
+            }
+            pages.removeAt(evicted);
+        }
+    }
+
+    private static final class Page<T> {
+        final List<T> items;
+        /**
+         * Value of access counter when item of page was requested last time, 0 if it was never requested
+         */
+        long lastAccess;
+
+        Page(List<T> items) {
+            this.items = items;
+        }
+    }
+}
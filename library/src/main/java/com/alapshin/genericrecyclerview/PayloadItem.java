@@ -0,0 +1,26 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Item able to describe how it differs from its previous version.
+ * <p>
+ * Returned payload is passed to {@link RecyclerView.Adapter#notifyItemChanged(int, Object)} and
+ * later to {@link PayloadViewHolderDelegate#onBindViewHolder(RecyclerView.ViewHolder, Item, java.util.List)}
+ * so that only changed part of item view is rebound.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public interface PayloadItem<T extends Item> extends Item {
+    /**
+     * Called when this item replaces item with the same {@link #id()} and different content
+     *
+     * @param oldItem previous version of item
+     * @return compact description of change or null to rebind the whole item
+     */
+    @Nullable
+    Object getChangePayload(@NonNull T oldItem);
+}
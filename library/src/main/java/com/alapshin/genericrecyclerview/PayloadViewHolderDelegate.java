@@ -0,0 +1,27 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * {@link ViewHolderDelegate} able to partially rebind {@link RecyclerView.ViewHolder} using change payloads
+ *
+ * @param <T> item type
+ * @param <VH> view holder type
+ * @see PayloadItem
+ */
+public interface PayloadViewHolderDelegate<T extends Item, VH extends RecyclerView.ViewHolder>
+        extends ViewHolderDelegate<T, VH> {
+    /**
+     * Called to partially bind the {@link RecyclerView.ViewHolder} to the item.
+     * Called only when payloads list is not empty, otherwise
+     * {@link #onBindViewHolder(RecyclerView.ViewHolder, Item)} is called.
+     *
+     * @param holder The holder to bind
+     * @param item The item to bind
+     * @param payloads non empty list of payloads passed to change notifications of item
+     */
+    void onBindViewHolder(@NonNull VH holder, @NonNull T item, @NonNull List<Object> payloads);
+}
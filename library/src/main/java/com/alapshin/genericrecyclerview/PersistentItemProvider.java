@@ -0,0 +1,273 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Item provider storing items in {@link PersistentList}.
+ * <p>
+ * Insertions, removals and moves take O(log n) time and {@link #getItems()} returns immutable
+ * snapshot of current items in O(1) time. Snapshots are not affected by subsequent modifications
+ * and can be read from background threads while provider is modified on the main thread.
+ * Provider itself must be modified on the main thread only.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class PersistentItemProvider<T extends Item> implements ItemProvider<T> {
+    private volatile PersistentList<T> items = PersistentList.empty();
+    private RecyclerView.Adapter adapter;
+    private ListUpdateCallback adapterCallback;
+
+    private final AsyncDiffRunner diffRunner = new AsyncDiffRunner();
+    private volatile DiffStrategy diffStrategy = new MyersDiffStrategy();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemId(int position) {
+        return items.get(position).id();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addItem(T item) {
+        addItem(items.size(), item);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addItem(int position, T item) {
+        diffRunner.checkNotPending();
+        items = items.withInserted(position, item);
+        if (adapterCallback != null) {
+            adapterCallback.onInserted(position, 1);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addItems(List<T> items) {
+        addItems(this.items.size(), items);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addItems(int position, List<T> items) {
+        diffRunner.checkNotPending();
+        this.items = this.items.withInsertedAll(position, items);
+        if (adapterCallback != null) {
+            adapterCallback.onInserted(position, items.size());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T getItem(int position) {
+        return items.get(position);
+    }
+
+    /**
+     * Returns immutable snapshot of provider items
+     *
+     * @return {@link PersistentList} of items
+     */
+    @NonNull
+    @Override
+    public PersistentList<T> getItems() {
+        return items;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If item implements {@link PayloadItem} its change payload is passed to adapter.
+     * </p>
+     */
+    @Override
+    public void setItem(int position, T item) {
+        setItem(position, item, DefaultItemProvider.getChangePayload(items.get(position), item));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setItem(int position, T item, @Nullable Object payload) {
+        diffRunner.checkNotPending();
+        items = items.withSet(position, item);
+        if (adapterCallback != null) {
+            adapterCallback.onChanged(position, 1, payload);
+        }
+    }
+
+    /**
+     * Moves item to new position
+     *
+     * @param fromPosition item position
+     * @param toPosition new item position
+     */
+    public void moveItem(int fromPosition, int toPosition) {
+        diffRunner.checkNotPending();
+        items = items.withMoved(fromPosition, toPosition);
+        if (adapterCallback != null) {
+            adapterCallback.onMoved(fromPosition, toPosition);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setItems(List<T> items) {
+        setItems(items, null);
+    }
+
+    /**
+     * Set provider items and notify listener once they are dispatched to adapter.
+     * <p>
+     * If diff executor is set, difference between current and new items is calculated on it and
+     * only dispatching of calculated updates happens on the main thread. Until then provider keeps
+     * returning current items and its modification methods throw {@link IllegalStateException},
+     * because modifications would not be reflected by calculated difference. Result of a call
+     * superseded by subsequent call is discarded, so the last passed items win.
+     * Passed list is copied unless it is {@link PersistentList}.
+     * </p>
+     *
+     * @param items {@link java.util.List} of items
+     * @param listener listener to notify when items are set, may be null
+     * @see #setDiffExecutor(Executor)
+     * @see #isUpdatePending()
+     */
+    public void setItems(List<T> items, @Nullable OnItemsUpdatedListener listener) {
+        PersistentList<T> newItems = PersistentList.copyOf(items);
+        if (adapter == null || diffRunner.getExecutor() == null) {
+            diffRunner.cancel();
+            DiffStrategy.Result result = adapter != null ? diffStrategy.calculateDiff(this.items, newItems) : null;
+            replaceItems(newItems, result, listener);
+            return;
+        }
+        calculateDiffAsync(newItems, listener);
+    }
+
+    /**
+     * Returns whether difference between current items and items passed to
+     * {@link #setItems(List, OnItemsUpdatedListener)} is being calculated, provider items can't be
+     * modified until it is dispatched
+     *
+     * @return true if items update is pending
+     */
+    public boolean isUpdatePending() {
+        return diffRunner.isPending();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeItem(int position) {
+        diffRunner.checkNotPending();
+        items = items.withRemoved(position);
+        if (adapterCallback != null) {
+            adapterCallback.onRemoved(position, 1);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeItems() {
+        diffRunner.checkNotPending();
+        int size = items.size();
+        items = PersistentList.empty();
+        if (adapterCallback != null) {
+            adapterCallback.onRemoved(0, size);
+        }
+    }
+
+    @Override
+    public void setAdapter(RecyclerView.Adapter adapter) {
+        this.adapter = adapter;
+        this.adapterCallback = adapter != null ? new AdapterUpdateCallback(adapter) : null;
+    }
+
+    /**
+     * Set executor used to calculate difference between old and new items in
+     * {@link #setItems(List, OnItemsUpdatedListener)}
+     *
+     * @param diffExecutor executor or null to calculate difference on the calling thread
+     */
+    public void setDiffExecutor(@Nullable Executor diffExecutor) {
+        diffRunner.setExecutor(diffExecutor);
+    }
+
+    /**
+     * Set strategy used to calculate difference between old and new items in
+     * {@link #setItems(List, OnItemsUpdatedListener)}, {@link MyersDiffStrategy}
+     * is used by default
+     *
+     * @param diffStrategy diff strategy
+     */
+    public void setDiffStrategy(@NonNull DiffStrategy diffStrategy) {
+        this.diffStrategy = diffStrategy;
+    }
+
+    private void calculateDiffAsync(final PersistentList<T> newItems, final OnItemsUpdatedListener listener) {
+        final PersistentList<T> oldItems = items;
+        diffRunner.run(new AsyncDiffRunner.Task<DiffStrategy.Result>() {
+            @Override
+            public DiffStrategy.Result calculate() {
+                return diffStrategy.calculateDiff(oldItems, newItems);
+            }
+
+            @Override
+            public void onCalculated(DiffStrategy.Result result) {
+                if (adapter == null || diffRunner.getExecutor() == null) {
+                    // Provider configuration changed while calculating difference
+                    setItems(newItems, listener);
+                    return;
+                }
+                replaceItems(newItems, result, listener);
+            }
+        });
+    }
+
+    /**
+     * Replaces items before dispatching updates, so adapter observers see new items
+     */
+    private void replaceItems(PersistentList<T> newItems, @Nullable DiffStrategy.Result result,
+                              @Nullable OnItemsUpdatedListener listener) {
+        items = newItems;
+        if (result != null) {
+            result.dispatchUpdatesTo(adapterCallback);
+        }
+        if (listener != null) {
+            listener.onItemsUpdated();
+        }
+    }
+}
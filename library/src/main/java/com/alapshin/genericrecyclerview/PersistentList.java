@@ -0,0 +1,393 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list stored in B-tree of fixed-size chunks.
+ * <p>
+ * Modification methods return new list sharing all unchanged chunks with this list, so they copy
+ * only chunks on the path from root to modified position and take O(log n) time. Lists are
+ * never modified after creation and can be read from any thread. Methods of {@link List}
+ * modifying list in place throw {@link UnsupportedOperationException}.
+ * </p>
+ *
+ * @param <T> element type
+ */
+public final class PersistentList<T> extends AbstractList<T> implements RandomAccess {
+    private static final int MAX_WIDTH = 32;
+    private static final int MIN_WIDTH = MAX_WIDTH / 2;
+
+    private static final PersistentList<Object> EMPTY = new PersistentList<>(null);
+
+    /**
+     * Root node or null if list is empty
+     */
+    private final Node root;
+
+    private PersistentList(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns empty list
+     * @param <T> element type
+     * @return empty list
+     */
+    @SuppressWarnings("unchecked")
+    @NonNull
+    public static <T> PersistentList<T> empty() {
+        return (PersistentList<T>) EMPTY;
+    }
+
+    /**
+     * Returns list containing given elements. Takes O(1) time for persistent list and O(n)
+     * time otherwise.
+     * @param elements elements
+     * @param <T> element type
+     * @return list
+     */
+    @SuppressWarnings("unchecked")
+    @NonNull
+    public static <T> PersistentList<T> copyOf(@NonNull Collection<? extends T> elements) {
+        if (elements instanceof PersistentList) {
+            return (PersistentList<T>) elements;
+        }
+        if (elements.isEmpty()) {
+            return empty();
+        }
+
+        Object[] array = elements.toArray();
+        List<Node> nodes = new ArrayList<>();
+        int leafCount = (array.length + MAX_WIDTH - 1) / MAX_WIDTH;
+        for (int i = 0; i < leafCount; i++) {
+            int from = (int) ((long) array.length * i / leafCount);
+            int to = (int) ((long) array.length * (i + 1) / leafCount);
+            Object[] items = new Object[to - from];
+            System.arraycopy(array, from, items, 0, items.length);
+            nodes.add(new Leaf(items));
+        }
+        while (nodes.size() > 1) {
+            List<Node> parents = new ArrayList<>();
+            int parentCount = (nodes.size() + MAX_WIDTH - 1) / MAX_WIDTH;
+            for (int i = 0; i < parentCount; i++) {
+                int from = nodes.size() * i / parentCount;
+                int to = nodes.size() * (i + 1) / parentCount;
+                parents.add(Branch.of(nodes.subList(from, to).toArray(new Node[to - from])));
+            }
+            nodes = parents;
+        }
+        return new PersistentList<>(nodes.get(0));
+    }
+
+    @Override
+    public int size() {
+        return root != null ? root.size() : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T get(int index) {
+        checkIndex(index, size());
+        Node node = root;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int child = branch.childAt(index);
+            index -= branch.offsetOf(child);
+            node = branch.children[child];
+        }
+        return (T) ((Leaf) node).items[index];
+    }
+
+    /**
+     * Returns list with element at index replaced
+     * @param index element index
+     * @param element new element
+     * @return new list
+     */
+    @NonNull
+    public PersistentList<T> withSet(int index, T element) {
+        checkIndex(index, size());
+        return new PersistentList<>(set(root, index, element));
+    }
+
+    /**
+     * Returns list with element inserted at index
+     * @param index index from 0 to size inclusive
+     * @param element element to insert
+     * @return new list
+     */
+    @NonNull
+    public PersistentList<T> withInserted(int index, T element) {
+        checkIndex(index, size() + 1);
+        if (root == null) {
+            return new PersistentList<>(new Leaf(new Object[] {element}));
+        }
+        Node[] nodes = insert(root, index, element);
+        return new PersistentList<>(nodes.length == 1 ? nodes[0] : Branch.of(nodes));
+    }
+
+    /**
+     * Returns list with elements inserted at index. Large collections are inserted by rebuilding
+     * list, so it takes O(min(k log n, n + k)) time.
+     * @param index index from 0 to size inclusive
+     * @param elements elements to insert
+     * @return new list
+     */
+    @NonNull
+    public PersistentList<T> withInsertedAll(int index, @NonNull Collection<? extends T> elements) {
+        int size = size();
+        checkIndex(index, size + 1);
+        if (elements.size() > size / MIN_WIDTH + MAX_WIDTH) {
+            List<T> list = new ArrayList<>(size + elements.size());
+            list.addAll(this);
+            list.addAll(index, elements);
+            return copyOf(list);
+        }
+        PersistentList<T> result = this;
+        for (T element : elements) {
+            result = result.withInserted(index++, element);
+        }
+        return result;
+    }
+
+    /**
+     * Returns list without element at index
+     * @param index element index
+     * @return new list
+     */
+    @NonNull
+    public PersistentList<T> withRemoved(int index) {
+        checkIndex(index, size());
+        Node node = remove(root, index);
+        if (node.size() == 0) {
+            return empty();
+        }
+        if (node instanceof Branch && ((Branch) node).children.length == 1) {
+            node = ((Branch) node).children[0];
+        }
+        return new PersistentList<>(node);
+    }
+
+    /**
+     * Returns list with element moved from one index to another
+     * @param fromIndex index of element
+     * @param toIndex index of element in new list
+     * @return new list
+     */
+    @NonNull
+    public PersistentList<T> withMoved(int fromIndex, int toIndex) {
+        checkIndex(toIndex, size());
+        T element = get(fromIndex);
+        return withRemoved(fromIndex).withInserted(toIndex, element);
+    }
+
+    private static Node set(Node node, int index, Object element) {
+        if (node instanceof Leaf) {
+            Object[] items = ((Leaf) node).items.clone();
+            items[index] = element;
+            return new Leaf(items);
+        }
+        Branch branch = (Branch) node;
+        int child = branch.childAt(index);
+        Node[] children = branch.children.clone();
+        children[child] = set(children[child], index - branch.offsetOf(child), element);
+        return new Branch(children, branch.offsets);
+    }
+
+    /**
+     * Returns node with inserted element, or two nodes if it had to be split
+     */
+    private static Node[] insert(Node node, int index, Object element) {
+        if (node instanceof Leaf) {
+            Object[] items = ((Leaf) node).items;
+            Object[] newItems = new Object[items.length + 1];
+            System.arraycopy(items, 0, newItems, 0, index);
+            newItems[index] = element;
+            System.arraycopy(items, index, newItems, index + 1, items.length - index);
+            if (newItems.length <= MAX_WIDTH) {
+                return new Node[] {new Leaf(newItems)};
+            }
+            return splitLeaf(newItems);
+        }
+
+        Branch branch = (Branch) node;
+        int child = branch.childForInsert(index);
+        Node[] inserted = insert(branch.children[child], index - branch.offsetOf(child), element);
+        Node[] children = branch.children;
+        Node[] newChildren = new Node[children.length + inserted.length - 1];
+        System.arraycopy(children, 0, newChildren, 0, child);
+        System.arraycopy(inserted, 0, newChildren, child, inserted.length);
+        System.arraycopy(children, child + 1, newChildren, child + inserted.length, children.length - child - 1);
+        if (newChildren.length <= MAX_WIDTH) {
+            return new Node[] {Branch.of(newChildren)};
+        }
+        return splitBranch(newChildren);
+    }
+
+    /**
+     * Returns node without element, node may have less than minimal width
+     */
+    private static Node remove(Node node, int index) {
+        if (node instanceof Leaf) {
+            Object[] items = ((Leaf) node).items;
+            Object[] newItems = new Object[items.length - 1];
+            System.arraycopy(items, 0, newItems, 0, index);
+            System.arraycopy(items, index + 1, newItems, index, items.length - index - 1);
+            return new Leaf(newItems);
+        }
+
+        Branch branch = (Branch) node;
+        int child = branch.childAt(index);
+        Node newChild = remove(branch.children[child], index - branch.offsetOf(child));
+        Node[] children = branch.children.clone();
+        children[child] = newChild;
+        if (newChild.width() >= MIN_WIDTH || children.length == 1) {
+            return Branch.of(children);
+        }
+
+        // Merge under-full child with sibling, splitting result if it is too wide
+        int left = child > 0 ? child - 1 : child;
+        Node[] merged = merge(children[left], children[left + 1]);
+        Node[] newChildren = new Node[children.length + merged.length - 2];
+        System.arraycopy(children, 0, newChildren, 0, left);
+        System.arraycopy(merged, 0, newChildren, left, merged.length);
+        System.arraycopy(children, left + 2, newChildren, left + merged.length, children.length - left - 2);
+        return Branch.of(newChildren);
+    }
+
+    private static Node[] merge(Node left, Node right) {
+        if (left instanceof Leaf) {
+            Object[] leftItems = ((Leaf) left).items;
+            Object[] rightItems = ((Leaf) right).items;
+            Object[] items = new Object[leftItems.length + rightItems.length];
+            System.arraycopy(leftItems, 0, items, 0, leftItems.length);
+            System.arraycopy(rightItems, 0, items, leftItems.length, rightItems.length);
+            return items.length <= MAX_WIDTH ? new Node[] {new Leaf(items)} : splitLeaf(items);
+        }
+        Node[] leftChildren = ((Branch) left).children;
+        Node[] rightChildren = ((Branch) right).children;
+        Node[] children = new Node[leftChildren.length + rightChildren.length];
+        System.arraycopy(leftChildren, 0, children, 0, leftChildren.length);
+        System.arraycopy(rightChildren, 0, children, leftChildren.length, rightChildren.length);
+        return children.length <= MAX_WIDTH ? new Node[] {Branch.of(children)} : splitBranch(children);
+    }
+
+    private static Node[] splitLeaf(Object[] items) {
+        int half = items.length / 2;
+        Object[] left = new Object[half];
+        Object[] right = new Object[items.length - half];
+        System.arraycopy(items, 0, left, 0, half);
+        System.arraycopy(items, half, right, 0, right.length);
+        return new Node[] {new Leaf(left), new Leaf(right)};
+    }
+
+    private static Node[] splitBranch(Node[] children) {
+        int half = children.length / 2;
+        Node[] left = new Node[half];
+        Node[] right = new Node[children.length - half];
+        System.arraycopy(children, 0, left, 0, half);
+        System.arraycopy(children, half, right, 0, right.length);
+        return new Node[] {Branch.of(left), Branch.of(right)};
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + size);
+        }
+    }
+
+    private abstract static class Node {
+        abstract int size();
+
+        /**
+         * Returns number of items of leaf or number of children of branch
+         */
+        abstract int width();
+    }
+
+    private static final class Leaf extends Node {
+        final Object[] items;
+
+        Leaf(Object[] items) {
+            this.items = items;
+        }
+
+        @Override
+        int size() {
+            return items.length;
+        }
+
+        @Override
+        int width() {
+            return items.length;
+        }
+    }
+
+    private static final class Branch extends Node {
+        final Node[] children;
+        /**
+         * Cumulative sizes of children, offsets[i] is number of elements in children 0..i
+         */
+        final int[] offsets;
+
+        Branch(Node[] children, int[] offsets) {
+            this.children = children;
+            this.offsets = offsets;
+        }
+
+        static Branch of(Node[] children) {
+            int[] offsets = new int[children.length];
+            int offset = 0;
+            for (int i = 0; i < children.length; i++) {
+                offset += children[i].size();
+                offsets[i] = offset;
+            }
+            return new Branch(children, offsets);
+        }
+
+        @Override
+        int size() {
+            return offsets[offsets.length - 1];
+        }
+
+        @Override
+        int width() {
+            return children.length;
+        }
+
+        int offsetOf(int child) {
+            return child > 0 ? offsets[child - 1] : 0;
+        }
+
+        /**
+         * Returns index of child containing element at index
+         */
+        int childAt(int index) {
+            int low = 0;
+            int high = offsets.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (offsets[mid] <= index) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Returns index of child to insert element at index into, element inserted at child
+         * boundary is appended to the left child
+         */
+        int childForInsert(int index) {
+            return index == 0 ? 0 : childAt(index - 1);
+        }
+    }
+}
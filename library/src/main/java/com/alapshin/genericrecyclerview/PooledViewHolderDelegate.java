@@ -0,0 +1,22 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * {@link ViewHolderDelegate} declaring how many of its {@link RecyclerView.ViewHolder}s should be
+ * kept in {@link RecyclerView.RecycledViewPool}
+ *
+ * @param <T> item type
+ * @param <VH> view holder type
+ * @see ViewHolderDelegateManager#preCreateViewHolders(RecyclerView, RecyclerView.Adapter)
+ */
+public interface PooledViewHolderDelegate<T extends Item, VH extends RecyclerView.ViewHolder>
+        extends ViewHolderDelegate<T, VH> {
+    /**
+     * Returns number of view holders expected to be used at once. It is used as maximum number of
+     * recycled view holders and as number of view holders created in advance.
+     *
+     * @return pool size
+     */
+    int getPoolSize();
+}
@@ -0,0 +1,470 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Item provider showing sections of items, each section starts with header item and its items
+ * are shown only while section is expanded.
+ * <p>
+ * Number of shown items of every section is kept in Fenwick tree, so mapping of position to
+ * section and back takes O(log s) time where s is number of sections. Expanding and collapsing
+ * section is dispatched to adapter as single range insertion or removal. Adding sections to the
+ * end takes O(log s) time, adding and removing other sections rebuilds tree in O(s) time.
+ * </p>
+ * <p>
+ * Positions passed to {@link ItemProvider} methods are positions of shown items. Items can only
+ * be added to specific section, so {@link #addItem(Item)}, {@link #addItems(List)} and
+ * {@link #setItems(List)} are not supported.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class SectionedItemProvider<T extends Item> implements ItemProvider<T> {
+    /**
+     * Payload of header change dispatched when section is expanded or collapsed
+     */
+    public static final Object PAYLOAD_EXPANDED_CHANGED = new Object();
+
+    private final List<Section<T>> sections = new ArrayList<>();
+    /**
+     * Numbers of shown items of sections including headers
+     */
+    private FenwickTree sizes = new FenwickTree(0);
+    private final List<T> itemsView = new ItemsView();
+    private ListUpdateCallback adapterCallback;
+
+    /**
+     * Returns number of sections
+     *
+     * @return number of sections
+     */
+    public int getSectionCount() {
+        return sections.size();
+    }
+
+    /**
+     * Adds expanded section to the end
+     *
+     * @param header section header
+     * @param items section items
+     */
+    public void addSection(@NonNull T header, @NonNull List<T> items) {
+        addSection(sections.size(), header, items, true);
+    }
+
+    /**
+     * Adds section
+     *
+     * @param section index of new section
+     * @param header section header
+     * @param items section items
+     * @param expanded whether section items are shown
+     */
+    public void addSection(int section, @NonNull T header, @NonNull List<T> items, boolean expanded) {
+        Section<T> newSection = new Section<>(header, new ArrayList<>(items), expanded);
+        int position = section < sections.size() ? getHeaderPosition(section) : getItemCount();
+        sections.add(section, newSection);
+        if (section == sizes.size()) {
+            sizes.append(newSection.getShownCount());
+        } else {
+            rebuildSizes();
+        }
+        if (adapterCallback != null) {
+            adapterCallback.onInserted(position, newSection.getShownCount());
+        }
+    }
+
+    /**
+     * Removes section with its header and items
+     *
+     * @param section section index
+     */
+    public void removeSection(int section) {
+        int position = getHeaderPosition(section);
+        Section<T> removed = sections.remove(section);
+        rebuildSizes();
+        if (adapterCallback != null) {
+            adapterCallback.onRemoved(position, removed.getShownCount());
+        }
+    }
+
+    /**
+     * Returns section header
+     *
+     * @param section section index
+     * @return header item
+     */
+    @NonNull
+    public T getSectionHeader(int section) {
+        return sections.get(section).header;
+    }
+
+    /**
+     * Returns unmodifiable list of section items
+     *
+     * @param section section index
+     * @return section items including hidden ones
+     */
+    @NonNull
+    public List<T> getSectionItems(int section) {
+        return Collections.unmodifiableList(sections.get(section).items);
+    }
+
+    /**
+     * Replaces items of section
+     *
+     * @param section section index
+     * @param items new section items
+     */
+    public void setSectionItems(int section, @NonNull List<T> items) {
+        Section<T> target = sections.get(section);
+        int oldCount = target.getShownCount();
+        target.items.clear();
+        target.items.addAll(items);
+        if (!target.expanded) {
+            return;
+        }
+        int newCount = target.getShownCount();
+        sizes.add(section, newCount - oldCount);
+        if (adapterCallback != null) {
+            int position = getHeaderPosition(section) + 1;
+            int changedCount = Math.min(oldCount, newCount) - 1;
+            if (changedCount > 0) {
+                adapterCallback.onChanged(position, changedCount, null);
+            }
+            if (newCount > oldCount) {
+                adapterCallback.onInserted(position + changedCount, newCount - oldCount);
+            } else if (newCount < oldCount) {
+                adapterCallback.onRemoved(position + changedCount, oldCount - newCount);
+            }
+        }
+    }
+
+    /**
+     * Adds item to section
+     *
+     * @param section section index
+     * @param index index of item in section
+     * @param item item to add
+     */
+    public void addSectionItem(int section, int index, @NonNull T item) {
+        Section<T> target = sections.get(section);
+        target.items.add(index, item);
+        if (target.expanded) {
+            sizes.add(section, 1);
+            if (adapterCallback != null) {
+                adapterCallback.onInserted(getHeaderPosition(section) + 1 + index, 1);
+            }
+        }
+    }
+
+    /**
+     * Removes item from section
+     *
+     * @param section section index
+     * @param index index of item in section
+     */
+    public void removeSectionItem(int section, int index) {
+        Section<T> target = sections.get(section);
+        target.items.remove(index);
+        if (target.expanded) {
+            sizes.add(section, -1);
+            if (adapterCallback != null) {
+                adapterCallback.onRemoved(getHeaderPosition(section) + 1 + index, 1);
+            }
+        }
+    }
+
+    /**
+     * Returns whether section items are shown
+     *
+     * @param section section index
+     * @return true if section is expanded
+     */
+    public boolean isExpanded(int section) {
+        return sections.get(section).expanded;
+    }
+
+    /**
+     * Shows or hides section items, header is notified about change with
+     * {@link #PAYLOAD_EXPANDED_CHANGED} payload
+     *
+     * @param section section index
+     * @param expanded whether section items should be shown
+     */
+    public void setExpanded(int section, boolean expanded) {
+        Section<T> target = sections.get(section);
+        if (target.expanded == expanded) {
+            return;
+        }
+        target.expanded = expanded;
+        int count = target.items.size();
+        sizes.add(section, expanded ? count : -count);
+        if (adapterCallback != null) {
+            int position = getHeaderPosition(section);
+            adapterCallback.onChanged(position, 1, PAYLOAD_EXPANDED_CHANGED);
+            if (count == 0) {
+                return;
+            }
+            if (expanded) {
+                adapterCallback.onInserted(position + 1, count);
+            } else {
+                adapterCallback.onRemoved(position + 1, count);
+            }
+        }
+    }
+
+    /**
+     * Returns index of section containing item at position
+     *
+     * @param position item position
+     * @return section index
+     */
+    public int getSectionForPosition(int position) {
+        checkPosition(position);
+        return sizes.indexOf(position);
+    }
+
+    /**
+     * Returns position of section header
+     *
+     * @param section section index
+     * @return header position
+     */
+    public int getHeaderPosition(int section) {
+        if (section < 0 || section >= sections.size()) {
+            throw new IndexOutOfBoundsException("Invalid section " + section + ", section count is "
+                    + sections.size());
+        }
+        return sizes.prefixSum(section);
+    }
+
+    /**
+     * Returns position of header of section containing item at position, e.g. to show sticky header
+     *
+     * @param position item position
+     * @return header position
+     */
+    public int getHeaderPositionForPosition(int position) {
+        return sizes.prefixSum(getSectionForPosition(position));
+    }
+
+    /**
+     * Returns index of item in its section
+     *
+     * @param position item position
+     * @return index of item in section or -1 if item is section header
+     */
+    public int getIndexInSection(int position) {
+        return position - getHeaderPositionForPosition(position) - 1;
+    }
+
+    /**
+     * Returns position of section item
+     *
+     * @param section section index
+     * @param index index of item in section
+     * @return item position or {@link RecyclerView#NO_POSITION} if section is collapsed
+     */
+    public int getPosition(int section, int index) {
+        Section<T> target = sections.get(section);
+        if (index < 0 || index >= target.items.size()) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", section size is "
+                    + target.items.size());
+        }
+        return target.expanded ? getHeaderPosition(section) + 1 + index : RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * Returns whether item at position is section header
+     *
+     * @param position item position
+     * @return true if item is section header
+     */
+    public boolean isHeader(int position) {
+        return getIndexInSection(position) < 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemCount() {
+        return sizes.prefixSum(sizes.size());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemId(int position) {
+        return getItem(position).id();
+    }
+
+    @Override
+    public void addItem(T item) {
+        throw new UnsupportedOperationException("SectionedItemProvider requires section, use addSectionItem()");
+    }
+
+    @Override
+    public void addItem(int position, T item) {
+        throw new UnsupportedOperationException("SectionedItemProvider requires section, use addSectionItem()");
+    }
+
+    @Override
+    public void addItems(List<T> items) {
+        throw new UnsupportedOperationException("SectionedItemProvider requires section, use addSectionItem()");
+    }
+
+    @Override
+    public void addItems(int position, List<T> items) {
+        throw new UnsupportedOperationException("SectionedItemProvider requires section, use addSectionItem()");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T getItem(int position) {
+        int section = getSectionForPosition(position);
+        int index = position - sizes.prefixSum(section) - 1;
+        Section<T> target = sections.get(section);
+        return index < 0 ? target.header : target.items.get(index);
+    }
+
+    /**
+     * Returns unmodifiable view of shown items
+     *
+     * @return {@link java.util.List} of shown items
+     */
+    @Override
+    public List<T> getItems() {
+        return itemsView;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If item implements {@link PayloadItem} its change payload is passed to adapter.
+     * </p>
+     */
+    @Override
+    public void setItem(int position, T item) {
+        setItem(position, item, DefaultItemProvider.getChangePayload(getItem(position), item));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Replaces section header if item at position is header.
+     * </p>
+     */
+    @Override
+    public void setItem(int position, T item, @Nullable Object payload) {
+        int section = getSectionForPosition(position);
+        int index = position - sizes.prefixSum(section) - 1;
+        Section<T> target = sections.get(section);
+        if (index < 0) {
+            target.header = item;
+        } else {
+            target.items.set(index, item);
+        }
+        if (adapterCallback != null) {
+            adapterCallback.onChanged(position, 1, payload);
+        }
+    }
+
+    @Override
+    public void setItems(List<T> items) {
+        throw new UnsupportedOperationException("SectionedItemProvider requires sections, use addSection()");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if item at position is section header
+     * @see #removeSection(int)
+     */
+    @Override
+    public void removeItem(int position) {
+        int section = getSectionForPosition(position);
+        int index = position - sizes.prefixSum(section) - 1;
+        if (index < 0) {
+            throw new IllegalArgumentException("Item at position " + position
+                    + " is section header, use removeSection()");
+        }
+        removeSectionItem(section, index);
+    }
+
+    /**
+     * Removes all sections
+     */
+    @Override
+    public void removeItems() {
+        int count = getItemCount();
+        sections.clear();
+        sizes = new FenwickTree(0);
+        if (adapterCallback != null && count > 0) {
+            adapterCallback.onRemoved(0, count);
+        }
+    }
+
+    @Override
+    public void setAdapter(RecyclerView.Adapter adapter) {
+        this.adapterCallback = adapter != null ? new AdapterUpdateCallback(adapter) : null;
+    }
+
+    private void rebuildSizes() {
+        int[] values = new int[sections.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = sections.get(i).getShownCount();
+        }
+        sizes = FenwickTree.of(values);
+    }
+
+    private void checkPosition(int position) {
+        int count = getItemCount();
+        if (position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("Invalid position " + position + ", item count is " + count);
+        }
+    }
+
+    private static final class Section<T> {
+        T header;
+        final List<T> items;
+        boolean expanded;
+
+        Section(T header, List<T> items, boolean expanded) {
+            this.header = header;
+            this.items = items;
+            this.expanded = expanded;
+        }
+
+        /**
+         * Returns number of shown items including header
+         */
+        int getShownCount() {
+            return expanded ? items.size() + 1 : 1;
+        }
+    }
+
+    private class ItemsView extends AbstractList<T> {
+        @Override
+        public T get(int index) {
+            return getItem(index);
+        }
+
+        @Override
+        public int size() {
+            return getItemCount();
+        }
+    }
+}
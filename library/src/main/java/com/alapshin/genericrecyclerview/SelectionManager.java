@@ -3,6 +3,12 @@ package com.alapshin.genericrecyclerview;
 import android.support.v7.widget.RecyclerView;
 
 public interface SelectionManager {
+    /**
+     * Payload passed to adapter change notifications caused by selection changes.
+     * Item views notified only with this payload need to update their selection state only.
+     */
+    Object SELECTION_PAYLOAD = new Object();
+
     enum ChoiceMode {
         NONE,
         SINGLE,
@@ -0,0 +1,273 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.SortedList;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.AbstractList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@link ItemProvider} keeping items sorted by comparator.
+ * <p>
+ * Items are stored in {@link SortedList}: single item is placed by binary search with one insert
+ * notification, batch of items is sorted and merged with current items in one pass with coalesced
+ * range notifications, replaced item is moved to its new position if its sort key was changed.
+ * </p>
+ * <p>
+ * Items which are equal according to comparator are ordered by id, so their order is stable and
+ * item added with id and sort key of existing item replaces it instead of being added as duplicate.
+ * </p>
+ * <p>
+ * Item position is defined by comparator, so methods inserting items at specified position are
+ * not supported.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class SortedItemProvider<T extends Item> implements ItemProvider<T> {
+    private final Comparator<? super T> comparator;
+    private final SortedList<T> items;
+    private final List<T> itemsView = new ItemsView();
+    private RecyclerView.Adapter adapter;
+    /**
+     * Payload of change notifications caused by current {@link #setItem(int, Item, Object)} call
+     */
+    private Object changePayload;
+
+    public SortedItemProvider(@NonNull Class<T> itemClass, @NonNull Comparator<? super T> comparator) {
+        this.comparator = comparator;
+        this.items = new SortedList<>(itemClass, new Callback());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    @Override
+    public int getItemId(int position) {
+        return items.get(position).id();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addItem(T item) {
+        items.add(item);
+    }
+
+    /**
+     * Not supported, item position is defined by comparator
+     */
+    @Override
+    public void addItem(int position, T item) {
+        throw new UnsupportedOperationException("SortedItemProvider doesn't support insertion at position");
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Items are merged with current items in one pass.
+     * </p>
+     */
+    @Override
+    public void addItems(List<T> items) {
+        this.items.addAll(items);
+    }
+
+    /**
+     * Not supported, item position is defined by comparator
+     */
+    @Override
+    public void addItems(int position, List<T> items) {
+        throw new UnsupportedOperationException("SortedItemProvider doesn't support insertion at position");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T getItem(int position) {
+        return items.get(position);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns unmodifiable view of provider items.
+     * </p>
+     */
+    @Override
+    public List<T> getItems() {
+        return itemsView;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Item is moved to new position if its sort key was changed.
+     * If item implements {@link PayloadItem} its change payload is passed to adapter.
+     * </p>
+     */
+    @Override
+    public void setItem(int position, T item) {
+        setItem(position, item, DefaultItemProvider.getChangePayload(items.get(position), item));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Item is moved to new position if its sort key was changed.
+     * </p>
+     */
+    @Override
+    public void setItem(int position, T item, @Nullable Object payload) {
+        changePayload = payload;
+        try {
+            items.updateItemAt(position, item);
+        } finally {
+            changePayload = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Current items absent from new items or having different sort key are removed, then new items
+     * are merged with the rest of current items. Notifications are coalesced.
+     * </p>
+     */
+    @Override
+    public void setItems(List<T> items) {
+        IntIntMap newPositions = new IntIntMap(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            newPositions.put(items.get(i).id(), i);
+        }
+
+        this.items.beginBatchedUpdates();
+        try {
+            for (int i = this.items.size() - 1; i >= 0; i--) {
+                T item = this.items.get(i);
+                int newPosition = newPositions.get(item.id(), -1);
+                if (newPosition < 0 || comparator.compare(item, items.get(newPosition)) != 0) {
+                    this.items.removeItemAt(i);
+                }
+            }
+            this.items.addAll(items);
+        } finally {
+            this.items.endBatchedUpdates();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeItem(int position) {
+        items.removeItemAt(position);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeItems() {
+        items.clear();
+    }
+
+    @Override
+    public void setAdapter(RecyclerView.Adapter adapter) {
+        this.adapter = adapter;
+    }
+
+    /**
+     * Moves item at position to its correct position after its sort key was changed in place
+     *
+     * @param position item position
+     */
+    public void recalculatePositionOfItemAt(int position) {
+        items.recalculatePositionOfItemAt(position);
+    }
+
+    /**
+     * Returns position of item using binary search
+     *
+     * @param item item
+     * @return item position or {@link RecyclerView#NO_POSITION} if there is no such item
+     */
+    public int indexOf(T item) {
+        return items.indexOf(item);
+    }
+
+    private class Callback extends SortedList.Callback<T> {
+        @Override
+        public int compare(T o1, T o2) {
+            int result = comparator.compare(o1, o2);
+            if (result != 0) {
+                return result;
+            }
+            // SortedList merges and searches items by comparison, equal items are ordered by id.
+            // Integer.compare() is not available before API 19.
+            int id1 = o1.id();
+            int id2 = o2.id();
+            return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            if (adapter != null) {
+                adapter.notifyItemRangeInserted(position, count);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            if (adapter != null) {
+                adapter.notifyItemRangeRemoved(position, count);
+            }
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            if (adapter != null) {
+                adapter.notifyItemMoved(fromPosition, toPosition);
+            }
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            if (adapter != null) {
+                adapter.notifyItemRangeChanged(position, count, changePayload);
+            }
+        }
+
+        @Override
+        public boolean areContentsTheSame(T oldItem, T newItem) {
+            return DefaultItemProvider.areContentsTheSame(oldItem, newItem);
+        }
+
+        @Override
+        public boolean areItemsTheSame(T item1, T item2) {
+            return item1.id() == item2.id();
+        }
+    }
+
+    private class ItemsView extends AbstractList<T> {
+        @Override
+        public T get(int index) {
+            return items.get(index);
+        }
+
+        @Override
+        public int size() {
+            return items.size();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * {@link SelectionManager} storing ids of selected items instead of their positions.
+ * <p>
+ * Selection follows items when they are inserted, removed or moved in {@link ItemProvider}, so it
+ * doesn't have to be rebuilt after provider changes. {@link #isSelected(int)} costs one
+ * {@link ItemProvider#getItemId(int)} call and one hash lookup.
+ * </p>
+ * <p>
+ * For every selected id the last known position of item is remembered, so positions of selected
+ * items are resolved without scanning the provider unless items were shifted. Positions of
+ * shifted items are looked up with {@link DefaultItemProvider#findPositionById(int)} when
+ * provider is {@link DefaultItemProvider}.
+ * </p>
+ */
+public class StableIdSelectionManager implements SelectionManager {
+    private ChoiceMode choiceMode = ChoiceMode.NONE;
+    private RecyclerView.Adapter adapter;
+    private final ItemProvider<?> itemProvider;
+    /**
+     * Map for id of selected item to its last known position
+     */
+    private final IntIntMap selectedIds = new IntIntMap();
+
+    public StableIdSelectionManager(@NonNull ItemProvider<?> itemProvider) {
+        if (itemProvider == null) {
+            throw new NullPointerException("ItemProvider is null");
+        }
+        this.itemProvider = itemProvider;
+    }
+
+    @Override
+    public void clear() {
+        if (isSelectionVisible()) {
+            notifyPositionsChanged(resolveSelectedPositions());
+        }
+        selectedIds.clear();
+    }
+
+    @Override
+    public void setChoiceMode(ChoiceMode mode) {
+        if (mode == ChoiceMode.SINGLE && selectedIds.size() > 1) {
+            // Single choice mode keeps at most one selected item
+            clear();
+        }
+        boolean wasVisible = isSelectionVisible();
+        choiceMode = mode;
+        if (wasVisible != isSelectionVisible()) {
+            notifyPositionsChanged(resolveSelectedPositions());
+        }
+    }
+
+    @Override
+    public void setSelection(int position, boolean selected) {
+        if (choiceMode == ChoiceMode.NONE) {
+            return;
+        }
+
+        int id = itemProvider.getItemId(position);
+        if (choiceMode == ChoiceMode.SINGLE && selectedIds.size() > 0
+                && (selectedIds.size() != 1 || !selectedIds.containsKey(id))) {
+            clear();
+        }
+
+        if (selectedIds.containsKey(id) != selected) {
+            if (selected) {
+                selectedIds.put(id, position);
+            } else {
+                selectedIds.remove(id);
+            }
+            if (adapter != null) {
+                adapter.notifyItemChanged(position, SELECTION_PAYLOAD);
+            }
+        }
+    }
+
+    @Override
+    public boolean isSelected(int position) {
+        switch (choiceMode) {
+            case NONE:
+                return false;
+            case SINGLE:
+                return selectedIds.size() == 1 && selectedIds.containsKey(itemProvider.getItemId(position));
+            case MULTI:
+                return selectedIds.containsKey(itemProvider.getItemId(position));
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void toggleSelection(int position) {
+        setSelection(position, !isSelected(position));
+    }
+
+    @Override
+    public void setAdapter(RecyclerView.Adapter adapter) {
+        this.adapter = adapter;
+    }
+
+    /**
+     * Returns whether item with given id is selected
+     * @param id item id
+     * @return true if item is selected
+     */
+    public boolean isItemSelected(int id) {
+        return isSelectionVisible() && selectedIds.containsKey(id);
+    }
+
+    /**
+     * Returns ids of selected items, including items which are no longer present in provider
+     * @return ids of selected items in unspecified order
+     */
+    @NonNull
+    public int[] getSelectedIds() {
+        return selectedIds.keys();
+    }
+
+    /**
+     * Returns whether stored selected ids are reported as selected in current choice mode
+     */
+    private boolean isSelectionVisible() {
+        switch (choiceMode) {
+            case NONE:
+                return false;
+            case SINGLE:
+                return selectedIds.size() == 1;
+            case MULTI:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Resolves current positions of selected items using remembered positions and falls back to
+     * id lookup or a single provider scan for items which were shifted
+     *
+     * @return sorted positions of selected items present in provider
+     */
+    private int[] resolveSelectedPositions() {
+        int[] ids = selectedIds.keys();
+        int[] positions = new int[ids.length];
+        int count = 0;
+        int missingCount = 0;
+        int itemCount = itemProvider.getItemCount();
+        for (int id : ids) {
+            int position = selectedIds.get(id, -1);
+            if (position < itemCount && itemProvider.getItemId(position) == id) {
+                positions[count++] = position;
+            } else {
+                ids[missingCount++] = id;
+            }
+        }
+
+        if (missingCount > 0 && itemProvider instanceof DefaultItemProvider) {
+            DefaultItemProvider<?> provider = (DefaultItemProvider<?>) itemProvider;
+            for (int i = 0; i < missingCount; i++) {
+                int position = provider.findPositionById(ids[i]);
+                if (position != RecyclerView.NO_POSITION) {
+                    selectedIds.put(ids[i], position);
+                    positions[count++] = position;
+                }
+            }
+        } else if (missingCount > 0) {
+            IntIntMap missingIds = new IntIntMap(missingCount);
+            for (int i = 0; i < missingCount; i++) {
+                missingIds.put(ids[i], -1);
+            }
+            for (int position = 0; position < itemCount && missingIds.size() > 0; position++) {
+                int id = itemProvider.getItemId(position);
+                if (missingIds.remove(id)) {
+                    selectedIds.put(id, position);
+                    positions[count++] = position;
+                }
+            }
+        }
+
+        positions = Arrays.copyOf(positions, count);
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    /**
+     * Notifies adapter about changed positions coalescing adjacent positions into ranges
+     */
+    private void notifyPositionsChanged(int[] sortedPositions) {
+        if (adapter == null) {
+            return;
+        }
+        int i = 0;
+        while (i < sortedPositions.length) {
+            int start = sortedPositions[i];
+            int end = start + 1;
+            while (++i < sortedPositions.length && sortedPositions[i] == end) {
+                end++;
+            }
+            adapter.notifyItemRangeChanged(start, end - start, SELECTION_PAYLOAD);
+        }
+    }
+}
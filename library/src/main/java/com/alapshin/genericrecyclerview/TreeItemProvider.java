@@ -0,0 +1,438 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Item provider showing tree of items, children of node are shown below it while node is expanded.
+ * <p>
+ * Every node keeps Fenwick tree of numbers of shown items in subtrees of its children, so shown
+ * items are never materialized: lookup of item by position and position of node take
+ * O(d log b) time, where d is depth of node and b is number of children of its ancestors.
+ * Expanding or collapsing node updates counts of its ancestors in O(d log b) time and is
+ * dispatched to adapter as single range insertion or removal. Adding child to the end takes
+ * O(d log b) time, adding and removing other children rebuilds tree of parent in O(b) time.
+ * </p>
+ * <p>
+ * Positions passed to {@link ItemProvider} methods are positions of shown items. Nodes can only be
+ * added to specific parent, so {@link #addItem(Item)}, {@link #addItems(List)} and
+ * {@link #setItems(List)} are not supported. {@link #removeItem(int)} removes node with its subtree.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public class TreeItemProvider<T extends Item> implements ItemProvider<T> {
+    /**
+     * Payload of node change dispatched when node is expanded or collapsed
+     */
+    public static final Object PAYLOAD_EXPANDED_CHANGED = new Object();
+
+    /**
+     * Tree node, nodes are created by {@link #addNode(Node, Item)}
+     *
+     * @param <T> item type
+     */
+    public static final class Node<T extends Item> {
+        private T item;
+        private final Node<T> parent;
+        private final int depth;
+        private final List<Node<T>> children = new ArrayList<>();
+        /**
+         * Numbers of shown items in subtrees of children
+         */
+        private FenwickTree childSizes = new FenwickTree(0);
+        /**
+         * Index of node among children of its parent
+         */
+        private int index;
+        private boolean expanded;
+
+        Node(T item, Node<T> parent) {
+            this.item = item;
+            this.parent = parent;
+            this.depth = parent != null ? parent.depth + 1 : -1;
+        }
+
+        @NonNull
+        public T getItem() {
+            return item;
+        }
+
+        /**
+         * Returns parent node or null for top level node
+         *
+         * @return parent node
+         */
+        @Nullable
+        public Node<T> getParent() {
+            return parent.parent != null ? parent : null;
+        }
+
+        /**
+         * Returns depth of node, top level nodes have depth 0
+         *
+         * @return node depth
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public int getChildCount() {
+            return children.size();
+        }
+
+        @NonNull
+        public Node<T> getChild(int index) {
+            return children.get(index);
+        }
+
+        public boolean isExpanded() {
+            return expanded;
+        }
+
+        /**
+         * Returns number of shown items in subtree of node including node itself
+         */
+        int getShownCount() {
+            return expanded ? 1 + getShownChildCount() : 1;
+        }
+
+        int getShownChildCount() {
+            return childSizes.prefixSum(childSizes.size());
+        }
+
+        void rebuildChildSizes() {
+            int[] values = new int[children.size()];
+            for (int i = 0; i < values.length; i++) {
+                Node<T> child = children.get(i);
+                child.index = i;
+                values[i] = child.getShownCount();
+            }
+            childSizes = FenwickTree.of(values);
+        }
+    }
+
+    /**
+     * Invisible expanded root, parent of top level nodes
+     */
+    private Node<T> root = newRoot();
+    private final List<T> itemsView = new ItemsView();
+    private ListUpdateCallback adapterCallback;
+
+    /**
+     * Adds collapsed node to the end of children of parent
+     *
+     * @param parent parent node or null to add top level node
+     * @param item node item
+     * @return added node
+     */
+    @NonNull
+    public Node<T> addNode(@Nullable Node<T> parent, @NonNull T item) {
+        return addNode(parent, parent != null ? parent.children.size() : root.children.size(), item);
+    }
+
+    /**
+     * Adds collapsed node to children of parent
+     *
+     * @param parent parent node or null to add top level node
+     * @param index index of node among children of parent
+     * @param item node item
+     * @return added node
+     */
+    @NonNull
+    public Node<T> addNode(@Nullable Node<T> parent, int index, @NonNull T item) {
+        Node<T> target = parent != null ? parent : root;
+        checkNode(target);
+        Node<T> node = new Node<>(item, target);
+        target.children.add(index, node);
+        if (index == target.childSizes.size()) {
+            node.index = index;
+            target.childSizes.append(1);
+        } else {
+            target.rebuildChildSizes();
+        }
+        if (target.expanded) {
+            addShownCount(target, 1);
+        }
+        int position = getPosition(node);
+        if (position != RecyclerView.NO_POSITION && adapterCallback != null) {
+            adapterCallback.onInserted(position, 1);
+        }
+        return node;
+    }
+
+    /**
+     * Removes node with its subtree
+     *
+     * @param node node to remove
+     */
+    public void removeNode(@NonNull Node<T> node) {
+        checkNode(node);
+        int count = node.getShownCount();
+        int position = getPosition(node);
+        Node<T> parent = node.parent;
+        parent.children.remove(node.index);
+        parent.rebuildChildSizes();
+        if (parent.expanded) {
+            addShownCount(parent, -count);
+        }
+        if (position != RecyclerView.NO_POSITION && adapterCallback != null) {
+            adapterCallback.onRemoved(position, count);
+        }
+    }
+
+    /**
+     * Shows or hides children of node, node is notified about change with
+     * {@link #PAYLOAD_EXPANDED_CHANGED} payload
+     *
+     * @param node node
+     * @param expanded whether children of node should be shown
+     */
+    public void setExpanded(@NonNull Node<T> node, boolean expanded) {
+        checkNode(node);
+        if (node.expanded == expanded) {
+            return;
+        }
+        int count = node.getShownChildCount();
+        node.expanded = expanded;
+        addShownCount(node, expanded ? count : -count);
+        int position = getPosition(node);
+        if (position != RecyclerView.NO_POSITION && adapterCallback != null) {
+            adapterCallback.onChanged(position, 1, PAYLOAD_EXPANDED_CHANGED);
+            if (count == 0) {
+                return;
+            }
+            if (expanded) {
+                adapterCallback.onInserted(position + 1, count);
+            } else {
+                adapterCallback.onRemoved(position + 1, count);
+            }
+        }
+    }
+
+    /**
+     * Returns number of top level nodes
+     *
+     * @return number of top level nodes
+     */
+    public int getNodeCount() {
+        return root.children.size();
+    }
+
+    /**
+     * Returns top level node
+     *
+     * @param index node index
+     * @return top level node
+     */
+    @NonNull
+    public Node<T> getNode(int index) {
+        return root.children.get(index);
+    }
+
+    /**
+     * Returns node shown at position
+     *
+     * @param position item position
+     * @return node
+     */
+    @NonNull
+    public Node<T> getNodeAt(int position) {
+        int count = getItemCount();
+        if (position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("Invalid position " + position + ", item count is " + count);
+        }
+        Node<T> node = root;
+        while (true) {
+            int index = node.childSizes.indexOf(position);
+            position -= node.childSizes.prefixSum(index);
+            node = node.children.get(index);
+            if (position == 0) {
+                return node;
+            }
+            // Skip node itself
+            position--;
+        }
+    }
+
+    /**
+     * Returns position of node
+     *
+     * @param node node
+     * @return node position or {@link RecyclerView#NO_POSITION} if node is hidden
+     */
+    public int getPosition(@NonNull Node<T> node) {
+        checkNode(node);
+        int position = 0;
+        for (Node<T> child = node; child.parent != null; child = child.parent) {
+            Node<T> parent = child.parent;
+            if (!parent.expanded) {
+                return RecyclerView.NO_POSITION;
+            }
+            position += parent.childSizes.prefixSum(child.index) + (parent.parent != null ? 1 : 0);
+        }
+        return position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemCount() {
+        return root.getShownChildCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemId(int position) {
+        return getNodeAt(position).item.id();
+    }
+
+    @Override
+    public void addItem(T item) {
+        throw new UnsupportedOperationException("TreeItemProvider requires parent node, use addNode()");
+    }
+
+    @Override
+    public void addItem(int position, T item) {
+        throw new UnsupportedOperationException("TreeItemProvider requires parent node, use addNode()");
+    }
+
+    @Override
+    public void addItems(List<T> items) {
+        throw new UnsupportedOperationException("TreeItemProvider requires parent node, use addNode()");
+    }
+
+    @Override
+    public void addItems(int position, List<T> items) {
+        throw new UnsupportedOperationException("TreeItemProvider requires parent node, use addNode()");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T getItem(int position) {
+        return getNodeAt(position).item;
+    }
+
+    /**
+     * Returns unmodifiable view of shown items
+     *
+     * @return {@link java.util.List} of shown items
+     */
+    @Override
+    public List<T> getItems() {
+        return itemsView;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If item implements {@link PayloadItem} its change payload is passed to adapter.
+     * </p>
+     */
+    @Override
+    public void setItem(int position, T item) {
+        setItem(position, item, DefaultItemProvider.getChangePayload(getItem(position), item));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setItem(int position, T item, @Nullable Object payload) {
+        getNodeAt(position).item = item;
+        if (adapterCallback != null) {
+            adapterCallback.onChanged(position, 1, payload);
+        }
+    }
+
+    @Override
+    public void setItems(List<T> items) {
+        throw new UnsupportedOperationException("TreeItemProvider requires parent node, use addNode()");
+    }
+
+    /**
+     * Removes node shown at position with its subtree
+     *
+     * @param position node position
+     */
+    @Override
+    public void removeItem(int position) {
+        removeNode(getNodeAt(position));
+    }
+
+    /**
+     * Removes all nodes
+     */
+    @Override
+    public void removeItems() {
+        int count = getItemCount();
+        root = newRoot();
+        if (adapterCallback != null && count > 0) {
+            adapterCallback.onRemoved(0, count);
+        }
+    }
+
+    @Override
+    public void setAdapter(RecyclerView.Adapter adapter) {
+        this.adapterCallback = adapter != null ? new AdapterUpdateCallback(adapter) : null;
+    }
+
+    /**
+     * Adds delta to shown count of node subtree in counts of its ancestors, counts of ancestors of
+     * collapsed node do not include its subtree
+     */
+    private static <T extends Item> void addShownCount(Node<T> node, int delta) {
+        for (Node<T> child = node; child.parent != null; child = child.parent) {
+            child.parent.childSizes.add(child.index, delta);
+            if (!child.parent.expanded) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks that node and its ancestors were not removed from this provider
+     */
+    private void checkNode(Node<T> node) {
+        Node<T> child = node;
+        while (child.parent != null) {
+            List<Node<T>> siblings = child.parent.children;
+            if (child.index >= siblings.size() || siblings.get(child.index) != child) {
+                throw new IllegalArgumentException("Node doesn't belong to this provider");
+            }
+            child = child.parent;
+        }
+        if (child != root) {
+            throw new IllegalArgumentException("Node doesn't belong to this provider");
+        }
+    }
+
+    private static <T extends Item> Node<T> newRoot() {
+        Node<T> root = new Node<>(null, null);
+        root.expanded = true;
+        return root;
+    }
+
+    private class ItemsView extends AbstractList<T> {
+        @Override
+        public T get(int index) {
+            return getItem(index);
+        }
+
+        @Override
+        public int size() {
+            return getItemCount();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.util.ListUpdateCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ListUpdateCallback} recording list updates to dispatch them later.
+ * <p>
+ * Every recorded update is merged with the previous one when possible: adjacent insertions,
+ * removals and changes with the same payload are coalesced into a single range, removal of
+ * just inserted items shrinks insertion and change of just inserted items is dropped.
+ * </p>
+ */
+final class UpdateBatch implements ListUpdateCallback {
+    private static final int TYPE_INSERT = 0;
+    private static final int TYPE_REMOVE = 1;
+    private static final int TYPE_MOVE = 2;
+    private static final int TYPE_CHANGE = 3;
+
+    private final List<Update> updates = new ArrayList<>();
+
+    @Override
+    public void onInserted(int position, int count) {
+        if (count <= 0) {
+            return;
+        }
+        Update last = getLastUpdate();
+        if (last != null && last.type == TYPE_INSERT
+                && position >= last.position && position <= last.position + last.count) {
+            last.count += count;
+            return;
+        }
+        updates.add(new Update(TYPE_INSERT, position, count, null));
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+        if (count <= 0) {
+            return;
+        }
+        Update last = getLastUpdate();
+        if (last != null) {
+            if (last.type == TYPE_REMOVE) {
+                if (position == last.position) {
+                    last.count += count;
+                    return;
+                }
+                if (position + count == last.position) {
+                    last.position = position;
+                    last.count += count;
+                    return;
+                }
+            } else if (last.type == TYPE_INSERT
+                    && position >= last.position && position + count <= last.position + last.count) {
+                last.count -= count;
+                if (last.count == 0) {
+                    updates.remove(updates.size() - 1);
+                }
+                return;
+            }
+        }
+        updates.add(new Update(TYPE_REMOVE, position, count, null));
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        if (fromPosition == toPosition) {
+            return;
+        }
+        updates.add(new Update(TYPE_MOVE, fromPosition, toPosition, null));
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+        if (count <= 0) {
+            return;
+        }
+        Update last = getLastUpdate();
+        if (last != null) {
+            if (last.type == TYPE_INSERT
+                    && position >= last.position && position + count <= last.position + last.count) {
+                // Inserted items will be bound anyway
+                return;
+            }
+            if (last.type == TYPE_CHANGE && last.payload == payload
+                    && position <= last.position + last.count && position + count >= last.position) {
+                int end = Math.max(last.position + last.count, position + count);
+                last.position = Math.min(last.position, position);
+                last.count = end - last.position;
+                return;
+            }
+        }
+        updates.add(new Update(TYPE_CHANGE, position, count, payload));
+    }
+
+    boolean isEmpty() {
+        return updates.isEmpty();
+    }
+
+    void clear() {
+        updates.clear();
+    }
+
+    /**
+     * Dispatches recorded updates in recording order and clears batch
+     *
+     * @param callback callback to dispatch updates to
+     */
+    void dispatchUpdatesTo(@NonNull ListUpdateCallback callback) {
+        for (int i = 0; i < updates.size(); i++) {
+            Update update = updates.get(i);
+            switch (update.type) {
+                case TYPE_INSERT:
+                    callback.onInserted(update.position, update.count);
+                    break;
+                case TYPE_REMOVE:
+                    callback.onRemoved(update.position, update.count);
+                    break;
+                case TYPE_MOVE:
+                    callback.onMoved(update.position, update.count);
+                    break;
+                case TYPE_CHANGE:
+                    callback.onChanged(update.position, update.count, update.payload);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown update type " + update.type);
+            }
+        }
+        updates.clear();
+    }
+
+    private Update getLastUpdate() {
+        return updates.isEmpty() ? null : updates.get(updates.size() - 1);
+    }
+
+    private static final class Update {
+        final int type;
+        int position;
+        /**
+         * Number of items or target position for moves
+         */
+        int count;
+        final Object payload;
+
+        Update(int type, int position, int count, Object payload) {
+            this.type = type;
+            this.position = position;
+            this.count = count;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.alapshin.genericrecyclerview;
+
+/**
+ * Item carrying version of its content.
+ * <p>
+ * When both old and new items with the same {@link #id()} implement this interface, providers
+ * compare their versions instead of calling {@link Object#equals(Object)}: equal versions mean
+ * equal content and different versions mean changed content. Version can be a counter incremented
+ * on every modification or a content hash cached on item creation, in which case hash collision
+ * makes changed item look unchanged.
+ * </p>
+ */
+public interface VersionedItem extends Item {
+    /**
+     * Version of item content
+     * @return version which changes whenever item content changes
+     */
+    long version();
+}
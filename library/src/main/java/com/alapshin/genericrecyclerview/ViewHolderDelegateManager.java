@@ -1,11 +1,19 @@
 package com.alapshin.genericrecyclerview;
 
+import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.util.SparseArrayCompat;
 import android.support.v7.widget.RecyclerView;
 import android.view.ViewGroup;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * This class is the element that ties {@link RecyclerView.Adapter} together with {@link
  * ViewHolderDelegate}.
@@ -25,6 +33,8 @@ import android.view.ViewGroup;
  * Must be called from {@link RecyclerView.Adapter#onCreateViewHolder(ViewGroup, int)}</li>
  * <li> {@link ViewHolderDelegateManager#onBindViewHolder(RecyclerView.ViewHolder, Item)}:
  * Must be called from {@link RecyclerView.Adapter#onBindViewHolder(RecyclerView.ViewHolder, int)}</li>
+ * <li> {@link ViewHolderDelegateManager#onBindViewHolder(RecyclerView.ViewHolder, Item, List)}:
+ * Must be called from {@link RecyclerView.Adapter#onBindViewHolder(RecyclerView.ViewHolder, int, List)}</li>
  * </ul>
  * <p>
  * You can also set a fallback {@link ViewHolderDelegate} by using {@link
@@ -33,12 +43,20 @@ import android.view.ViewGroup;
  * will be thrown if no {@link ViewHolderDelegate} is responsible to handle a certain view type
  * </p>
  *
+ * <p>
+ * View type lookup is indexed: delegates implementing {@link ItemTypeViewHolderDelegate} are found
+ * by {@link Item#type()} with a single table lookup, delegates implementing
+ * {@link ItemClassViewHolderDelegate} are memoized per item class. Other delegates are scanned
+ * linearly via {@link ViewHolderDelegate#isForViewType(Item)} only if indexed lookup fails.
+ * </p>
+ *
  * @param <T> item type
  *
  * @author Hannes Dorfmann
  * @author Andrei Lapshin
  */
-public class ViewHolderDelegateManager<T extends Item, VH extends RecyclerView.ViewHolder> {
+public class ViewHolderDelegateManager<T extends Item, VH extends RecyclerView.ViewHolder>
+        implements ViewTypeResolver<T> {
     static final int FALLBACK_DELEGATE_VIEW_TYPE = Integer.MAX_VALUE - 1;
 
     private ViewHolderDelegate<T, ? extends VH> fallbackDelegate;
@@ -46,11 +64,42 @@ public class ViewHolderDelegateManager<T extends Item, VH extends RecyclerView.V
      * Map for ViewType to ViewHolderDelegate
      */
     SparseArrayCompat<ViewHolderDelegate<T, ? extends VH>> delegates = new SparseArrayCompat<>();
+    /**
+     * View types of delegates in order they were added, defines order of predicate delegates lookup
+     */
+    private final List<Integer> viewTypeOrder = new ArrayList<>();
+
+    /**
+     * Map for {@link Item#type()} to ViewType of {@link ItemTypeViewHolderDelegate}
+     */
+    private final IntIntMap itemTypeIndex = new IntIntMap();
+    /**
+     * Map for item class to ViewType of {@link ItemClassViewHolderDelegate},
+     * {@link #FALLBACK_DELEGATE_VIEW_TYPE} is stored for classes without such delegate
+     */
+    private final Map<Class<?>, Integer> itemClassCache = new ConcurrentHashMap<>();
+    private final List<ItemClassViewHolderDelegate<T, ? extends VH>> classDelegates = new ArrayList<>();
+    private int[] classDelegateViewTypes = new int[0];
+    /**
+     * Delegates without declared item types or classes in order they were added
+     */
+    private final List<ViewHolderDelegate<T, ? extends VH>> predicateDelegates = new ArrayList<>();
+    private int[] predicateDelegateViewTypes = new int[0];
+    /**
+     * Listeners notified on every change of delegates, so cached view types can be discarded
+     */
+    private final List<OnDelegatesChangedListener> delegatesChangedListeners = new ArrayList<>();
+
+    @Nullable
+    private AdapterMetrics metrics;
+    @Nullable
+    private ViewHolderPreCreator preCreator;
 
     /**
      * Adds an {@link ViewHolderDelegate}.
-     * <b>This method automatically assign internally the view type integer by using the next
-     * unused</b>
+     * <b>This method automatically assigns view type of delegate from {@link ViewTypeRegistry}</b>,
+     * so the same delegate gets the same view type in all managers. If this manager already has
+     * delegates with the same view type key, the next view type registered for the key is assigned.
      *
      * Internally calls {@link #addDelegate(ViewHolderDelegate, int, boolean)} with
      * allowReplacingDelegate = false as parameter.
@@ -62,16 +111,19 @@ public class ViewHolderDelegateManager<T extends Item, VH extends RecyclerView.V
      * @see #addDelegate(ViewHolderDelegate, int, boolean)
      */
     public ViewHolderDelegateManager<T, VH> addDelegate(@NonNull ViewHolderDelegate<T, ? extends VH> delegate) {
-        // algorithm could be improved since there could be holes,
-        // but it's very unlikely that we reach Integer.MAX_VALUE and run out of unused indexes
-        int viewType = delegates.size();
-        while (delegates.get(viewType) != null) {
-            viewType++;
-            if (viewType == FALLBACK_DELEGATE_VIEW_TYPE) {
-                throw new IllegalArgumentException(
-                        "Oops, we are very close to Integer.MAX_VALUE. It seems that there are no "
-                        + "more free and unused view type integers left to add another ViewHolderDelegate.");
-            }
+        if (delegate == null) {
+            throw new NullPointerException("ViewHolderDelegate is null!");
+        }
+
+        ViewTypeRegistry registry = ViewTypeRegistry.getInstance();
+        int viewType;
+        int ordinal = 0;
+        do {
+            // Another instance with the same key may be added, its view holders may be incompatible
+            viewType = registry.getViewType(delegate, ordinal++);
+        } while (delegates.get(viewType) != null);
+        if (delegate instanceof PooledViewHolderDelegate) {
+            registry.registerPoolSize(viewType, ((PooledViewHolderDelegate<T, ? extends VH>) delegate).getPoolSize());
         }
         return addDelegate(delegate, viewType, false);
     }
@@ -116,7 +168,11 @@ public class ViewHolderDelegateManager<T extends Item, VH extends RecyclerView.V
                             + delegates.get(viewType));
         }
 
+        if (delegates.get(viewType) == null) {
+            viewTypeOrder.add(viewType);
+        }
         delegates.put(viewType, delegate);
+        rebuildIndex();
 
         return this;
     }
@@ -138,7 +194,9 @@ public class ViewHolderDelegateManager<T extends Item, VH extends RecyclerView.V
         int indexToRemove = delegates.indexOfValue(delegate);
 
         if (indexToRemove >= 0) {
+            viewTypeOrder.remove(Integer.valueOf(delegates.keyAt(indexToRemove)));
             delegates.removeAt(indexToRemove);
+            rebuildIndex();
         }
         return this;
     }
@@ -151,12 +209,15 @@ public class ViewHolderDelegateManager<T extends Item, VH extends RecyclerView.V
      */
     public ViewHolderDelegateManager<T, VH> removeDelegate(int viewType) {
         delegates.remove(viewType);
+        viewTypeOrder.remove(Integer.valueOf(viewType));
+        rebuildIndex();
         return this;
     }
 
     /**
-     * Must be called from {@link RecyclerView.Adapter#getItemViewType(int)}. Internally it scans all
-     * the registered {@link ViewHolderDelegate} and picks the right one to return the ViewType integer.
+     * Must be called from {@link RecyclerView.Adapter#getItemViewType(int)}. Internally it looks up
+     * indexed {@link ItemTypeViewHolderDelegate} and {@link ItemClassViewHolderDelegate}, then scans
+     * the rest of registered {@link ViewHolderDelegate} and picks the right one to return the ViewType integer.
      *
      * @param item Item from adapter's data source
      * @return the ViewType (integer)
@@ -165,12 +226,41 @@ public class ViewHolderDelegateManager<T extends Item, VH extends RecyclerView.V
      * ViewType)
      * @throws NullPointerException if items is null
      */
+    @Override
     public int getItemViewType(@NonNull T item) {
-        int delegatesCount = delegates.size();
+        if (metrics == null) {
+            return dispatchItemViewType(item);
+        }
+        long start = System.nanoTime();
+        int viewType = dispatchItemViewType(item);
+        metrics.recordDispatch(System.nanoTime() - start);
+        return viewType;
+    }
+
+    /**
+     * Finds delegate responsible for item, called by {@link #getItemViewType(Item)}.
+     * Can be overridden by generated dispatchers, see {@link DelegateDispatcher}.
+     *
+     * @param item item
+     * @return the ViewType
+     */
+    protected int dispatchItemViewType(@NonNull T item) {
+        int viewType = itemTypeIndex.get(item.type(), FALLBACK_DELEGATE_VIEW_TYPE);
+        if (viewType != FALLBACK_DELEGATE_VIEW_TYPE) {
+            return viewType;
+        }
+
+        if (!classDelegates.isEmpty()) {
+            viewType = getItemClassViewType(item.getClass());
+            if (viewType != FALLBACK_DELEGATE_VIEW_TYPE) {
+                return viewType;
+            }
+        }
+
+        int delegatesCount = predicateDelegates.size();
         for (int i = 0; i < delegatesCount; i++) {
-            ViewHolderDelegate<T, ? extends VH> delegate = delegates.valueAt(i);
-            if (delegate.isForViewType(item)) {
-                return delegates.keyAt(i);
+            if (predicateDelegates.get(i).isForViewType(item)) {
+                return predicateDelegateViewTypes[i];
             }
         }
 
@@ -193,6 +283,25 @@ public class ViewHolderDelegateManager<T extends Item, VH extends RecyclerView.V
      */
     @NonNull
     public VH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        VH vh = dispatchCreateViewHolder(parent, viewType);
+        if (metrics != null) {
+            metrics.recordCreate(viewType, System.nanoTime() - start);
+        }
+        return vh;
+    }
+
+    /**
+     * Creates view holder by delegate responsible for view type, called by
+     * {@link #onCreateViewHolder(ViewGroup, int)}.
+     * Can be overridden by generated dispatchers, see {@link DelegateDispatcher}.
+     *
+     * @param parent the parent
+     * @param viewType the view type
+     * @return The new created ViewHolder
+     */
+    @NonNull
+    protected VH dispatchCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         ViewHolderDelegate<T, ? extends VH> delegate = delegates.get(viewType);
         if (delegate == null) {
             if (fallbackDelegate == null) {
@@ -222,7 +331,53 @@ public class ViewHolderDelegateManager<T extends Item, VH extends RecyclerView.V
      * viewType
      */
     public void onBindViewHolder(@NonNull VH viewHolder, @NonNull T item) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        dispatchBindViewHolder(viewHolder, item, Collections.<Object>emptyList());
+        if (metrics != null) {
+            metrics.recordBind(viewHolder.getItemViewType(), System.nanoTime() - start);
+        }
+    }
 
+    /**
+     * Must be called from
+     * {@link RecyclerView.Adapter#onBindViewHolder(RecyclerView.ViewHolder, int, List)}.
+     * If payloads are not empty and delegate implements {@link PayloadViewHolderDelegate} view holder
+     * is bound partially, otherwise it is fully rebound.
+     *
+     * @param viewHolder the ViewHolder to bind
+     * @param item item
+     * @param payloads change payloads
+     * @throws NullPointerException if no ViewHolderDelegate has been registered for ViewHolders
+     * viewType
+     */
+    public void onBindViewHolder(@NonNull VH viewHolder, @NonNull T item, @NonNull List<Object> payloads) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        dispatchBindViewHolder(viewHolder, item, payloads);
+        if (metrics != null) {
+            metrics.recordBind(viewHolder.getItemViewType(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Binds view holder by delegate responsible for its view type, called by
+     * {@link #onBindViewHolder(RecyclerView.ViewHolder, Item, List)}.
+     * Can be overridden by generated dispatchers, see {@link DelegateDispatcher}.
+     *
+     * @param viewHolder the ViewHolder to bind
+     * @param item item
+     * @param payloads change payloads, empty list means full bind
+     */
+    protected void dispatchBindViewHolder(@NonNull VH viewHolder, @NonNull T item, @NonNull List<Object> payloads) {
+        ViewHolderDelegate<T, ? extends VH> delegate = getDelegateForViewHolder(viewHolder);
+        if (!payloads.isEmpty() && delegate instanceof PayloadViewHolderDelegate) {
+            onBindViewHolderImpl((PayloadViewHolderDelegate<T, ? extends VH>) delegate, viewHolder, item, payloads);
+        } else {
+            onBindViewHolderImpl(delegate, viewHolder, item);
+        }
+    }
+
+    @NonNull
+    private ViewHolderDelegate<T, ? extends VH> getDelegateForViewHolder(@NonNull VH viewHolder) {
         ViewHolderDelegate<T, ? extends VH> delegate = delegates.get(viewHolder.getItemViewType());
         if (delegate == null) {
             if (fallbackDelegate == null) {
@@ -232,8 +387,7 @@ public class ViewHolderDelegateManager<T extends Item, VH extends RecyclerView.V
                 delegate = fallbackDelegate;
             }
         }
-
-        onBindViewHolderImpl(delegate, viewHolder, item);
+        return delegate;
     }
 
     /**
@@ -252,6 +406,180 @@ public class ViewHolderDelegateManager<T extends Item, VH extends RecyclerView.V
         return this;
     }
 
+    /**
+     * Configures maximum number of recycled view holders of {@link PooledViewHolderDelegate}s in
+     * recycled view pool of RecyclerView and creates missing view holders in advance when the main
+     * thread is idle. View holders are created by adapter, so they are initialized as if they were
+     * created by RecyclerView. Pending creation started by previous call is cancelled.
+     *
+     * @param recyclerView RecyclerView which pool is filled, used as parent of created view holders
+     * @param adapter adapter of RecyclerView using this manager
+     * @see PooledViewHolderDelegate#getPoolSize()
+     */
+    @MainThread
+    public void preCreateViewHolders(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.Adapter<VH> adapter) {
+        cancelPreCreation();
+
+        int delegatesCount = delegates.size();
+        int[] viewTypes = new int[delegatesCount + 1];
+        int[] poolSizes = new int[delegatesCount + 1];
+        int count = 0;
+        for (int i = 0; i < delegatesCount; i++) {
+            if (delegates.valueAt(i) instanceof PooledViewHolderDelegate) {
+                viewTypes[count] = delegates.keyAt(i);
+                poolSizes[count] = ((PooledViewHolderDelegate<T, ? extends VH>) delegates.valueAt(i)).getPoolSize();
+                count++;
+            }
+        }
+        if (fallbackDelegate instanceof PooledViewHolderDelegate) {
+            viewTypes[count] = FALLBACK_DELEGATE_VIEW_TYPE;
+            poolSizes[count] = ((PooledViewHolderDelegate<T, ? extends VH>) fallbackDelegate).getPoolSize();
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+
+        RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        for (int i = 0; i < count; i++) {
+            pool.setMaxRecycledViews(viewTypes[i], poolSizes[i]);
+        }
+        preCreator = new ViewHolderPreCreator(recyclerView, adapter,
+                Arrays.copyOf(viewTypes, count), Arrays.copyOf(poolSizes, count));
+        preCreator.start();
+    }
+
+    /**
+     * Cancels creation of view holders started by
+     * {@link #preCreateViewHolders(RecyclerView, RecyclerView.Adapter)}
+     */
+    @MainThread
+    public void cancelPreCreation() {
+        if (preCreator != null) {
+            preCreator.cancel();
+            preCreator = null;
+        }
+    }
+
+    /**
+     * Set metrics to record item view type lookup, view holder creation and binding latencies to
+     *
+     * @param metrics metrics or null to stop recording
+     * @return self
+     */
+    public ViewHolderDelegateManager<T, VH> setMetrics(@Nullable AdapterMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Returns ViewType of the first {@link ItemClassViewHolderDelegate} responsible for given item class
+     * or {@link #FALLBACK_DELEGATE_VIEW_TYPE} if there is no such delegate
+     */
+    private int getItemClassViewType(Class<?> itemClass) {
+        Integer cachedViewType = itemClassCache.get(itemClass);
+        if (cachedViewType != null) {
+            return cachedViewType;
+        }
+
+        int viewType = FALLBACK_DELEGATE_VIEW_TYPE;
+        int delegatesCount = classDelegates.size();
+        for (int i = 0; i < delegatesCount; i++) {
+            if (classDelegates.get(i).getItemClass().isAssignableFrom(itemClass)) {
+                viewType = classDelegateViewTypes[i];
+                break;
+            }
+        }
+        itemClassCache.put(itemClass, viewType);
+        return viewType;
+    }
+
+    /**
+     * Checks that delegate handles item types declared with {@link ItemTypes}, called by
+     * generated dispatchers, see {@link DelegateDispatcher}
+     *
+     * @param delegate delegate
+     * @param declaredItemTypes sorted item types declared with {@link ItemTypes}
+     * @throws IllegalStateException if delegate returns different item types
+     */
+    protected static void checkItemTypes(@NonNull ItemTypeViewHolderDelegate<?, ?> delegate,
+                                         @NonNull int... declaredItemTypes) {
+        int[] itemTypes = delegate.getItemTypes().clone();
+        Arrays.sort(itemTypes);
+        if (!Arrays.equals(itemTypes, declaredItemTypes)) {
+            throw new IllegalStateException("Item types " + Arrays.toString(itemTypes) + " of delegate " + delegate
+                    + " don't match declared item types " + Arrays.toString(declaredItemTypes));
+        }
+    }
+
+    /**
+     * Listener of changes of registered delegates
+     */
+    interface OnDelegatesChangedListener {
+        void onDelegatesChanged();
+    }
+
+    void addOnDelegatesChangedListener(@NonNull OnDelegatesChangedListener listener) {
+        delegatesChangedListeners.add(listener);
+    }
+
+    void removeOnDelegatesChangedListener(@NonNull OnDelegatesChangedListener listener) {
+        delegatesChangedListeners.remove(listener);
+    }
+
+    /**
+     * Moves listener from old resolver to new one, resolvers which aren't managers are skipped
+     */
+    static void moveOnDelegatesChangedListener(@Nullable ViewTypeResolver<?> oldResolver,
+                                               @Nullable ViewTypeResolver<?> newResolver,
+                                               @NonNull OnDelegatesChangedListener listener) {
+        if (oldResolver instanceof ViewHolderDelegateManager) {
+            ((ViewHolderDelegateManager<?, ?>) oldResolver).removeOnDelegatesChangedListener(listener);
+        }
+        if (newResolver instanceof ViewHolderDelegateManager) {
+            ((ViewHolderDelegateManager<?, ?>) newResolver).addOnDelegatesChangedListener(listener);
+        }
+    }
+
+    /**
+     * Rebuilds lookup structures after registered delegates were changed and notifies delegates
+     * changed listeners, it's called on every addition and removal of delegate. Delegates added
+     * earlier take precedence if they declare the same item type or class.
+     */
+    private void rebuildIndex() {
+        itemTypeIndex.clear();
+        itemClassCache.clear();
+        classDelegates.clear();
+        predicateDelegates.clear();
+
+        int delegatesCount = viewTypeOrder.size();
+        int[] classViewTypes = new int[delegatesCount];
+        int[] predicateViewTypes = new int[delegatesCount];
+        for (int i = 0; i < delegatesCount; i++) {
+            int viewType = viewTypeOrder.get(i);
+            ViewHolderDelegate<T, ? extends VH> delegate = delegates.get(viewType);
+            if (delegate instanceof ItemTypeViewHolderDelegate) {
+                for (int itemType : ((ItemTypeViewHolderDelegate<T, ? extends VH>) delegate).getItemTypes()) {
+                    if (!itemTypeIndex.containsKey(itemType)) {
+                        itemTypeIndex.put(itemType, viewType);
+                    }
+                }
+            } else if (delegate instanceof ItemClassViewHolderDelegate) {
+                classViewTypes[classDelegates.size()] = viewType;
+                classDelegates.add((ItemClassViewHolderDelegate<T, ? extends VH>) delegate);
+            } else {
+                predicateViewTypes[predicateDelegates.size()] = viewType;
+                predicateDelegates.add(delegate);
+            }
+        }
+        classDelegateViewTypes = classViewTypes;
+        predicateDelegateViewTypes = predicateViewTypes;
+
+        for (int i = 0; i < delegatesChangedListeners.size(); i++) {
+            delegatesChangedListeners.get(i).onDelegatesChanged();
+        }
+    }
+
     /**
      * Helper method to call {@link ViewHolderDelegate#onBindViewHolder(RecyclerView.ViewHolder, Item)}
      * with view holder casted to right type
@@ -262,4 +590,14 @@ public class ViewHolderDelegateManager<T extends Item, VH extends RecyclerView.V
             ViewHolderDelegate<T, VH> reference, Object arg, T item) {
         reference.onBindViewHolder(reference.getViewHolderType().cast(arg), item);
     }
+
+    /**
+     * Helper method to call
+     * {@link PayloadViewHolderDelegate#onBindViewHolder(RecyclerView.ViewHolder, Item, List)}
+     * with view holder casted to right type
+     */
+    private static <T extends Item, VH extends RecyclerView.ViewHolder> void onBindViewHolderImpl(
+            PayloadViewHolderDelegate<T, VH> reference, Object arg, T item, List<Object> payloads) {
+        reference.onBindViewHolder(reference.getViewHolderType().cast(arg), item, payloads);
+    }
 }
@@ -0,0 +1,80 @@
+package com.alapshin.genericrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Creates view holders and puts them into {@link RecyclerView.RecycledViewPool} while the main
+ * thread message queue is idle.
+ * <p>
+ * Every idle callback creates view holders until time budget is exhausted, then posts empty
+ * message to get next idle callback, so pending frames are not delayed by more than one view
+ * holder creation.
+ * </p>
+ */
+final class ViewHolderPreCreator implements MessageQueue.IdleHandler {
+    private static final long IDLE_BUDGET_NANOS = 4000000;
+
+    private final RecyclerView recyclerView;
+    private final RecyclerView.Adapter<?> adapter;
+    private final int[] viewTypes;
+    private final int[] poolSizes;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable wakeUp = new Runnable() {
+        @Override
+        public void run() {
+            // Empty message makes message queue idle again after it is processed
+        }
+    };
+
+    private int index;
+    private int createdCount;
+    private boolean cancelled;
+
+    ViewHolderPreCreator(RecyclerView recyclerView, RecyclerView.Adapter<?> adapter, int[] viewTypes,
+                         int[] poolSizes) {
+        this.recyclerView = recyclerView;
+        this.adapter = adapter;
+        this.viewTypes = viewTypes;
+        this.poolSizes = poolSizes;
+    }
+
+    void start() {
+        Looper.myQueue().addIdleHandler(this);
+    }
+
+    void cancel() {
+        cancelled = true;
+        Looper.myQueue().removeIdleHandler(this);
+        handler.removeCallbacks(wakeUp);
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if (cancelled) {
+            return false;
+        }
+        RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        long deadline = System.nanoTime() + IDLE_BUDGET_NANOS;
+        while (index < viewTypes.length) {
+            int viewType = viewTypes[index];
+            if (createdCount >= poolSizes[index] || pool.getRecycledViewCount(viewType) >= poolSizes[index]) {
+                index++;
+                createdCount = 0;
+                continue;
+            }
+            pool.putRecycledView(adapter.createViewHolder(recyclerView, viewType));
+            createdCount++;
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        if (index < viewTypes.length) {
+            handler.post(wakeUp);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,32 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.Nullable;
+
+/**
+ * {@link ItemProvider} keeping resolved view types of its items, so adapter can return view type
+ * of position without accessing item and dispatching it to delegates.
+ * <p>
+ * {@link DefaultAdapter} sets its {@link ViewHolderDelegateManager} as resolver when both
+ * provider and manager are set. Cached view types must be discarded when delegates of manager
+ * change.
+ * </p>
+ *
+ * @param <T> item type
+ */
+public interface ViewTypeColumnProvider<T extends Item> extends ItemProvider<T> {
+    /**
+     * Set resolver of item view types
+     *
+     * @param resolver resolver or null to stop resolving view types
+     */
+    void setViewTypeResolver(@Nullable ViewTypeResolver<T> resolver);
+
+    /**
+     * Returns resolved view type of item at position
+     *
+     * @param position item position
+     * @return view type
+     * @throws IllegalStateException if resolver is not set
+     */
+    int getItemViewType(int position);
+}
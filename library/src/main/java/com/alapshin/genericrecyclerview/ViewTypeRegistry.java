@@ -0,0 +1,167 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide registry of view types.
+ * <p>
+ * Assigns each delegate key the same view type in every {@link ViewHolderDelegateManager}, so
+ * RecyclerViews using different managers can share {@link RecyclerView.RecycledViewPool}.
+ * Registered view types start from {@link #FIRST_VIEW_TYPE} to not collide with view types
+ * assigned manually. Registry also keeps pool sizes declared by {@link PooledViewHolderDelegate}s
+ * to configure shared pools.
+ * </p>
+ * <p>
+ * Registered view types are never released. Several delegates with the same key in one manager
+ * get view types registered for the key and ordinal of delegate, so number of view types is bounded
+ * by number of keys times the largest number of delegates with the same key in one manager, and
+ * doesn't grow when managers are created and dropped.
+ * </p>
+ */
+public final class ViewTypeRegistry {
+    /**
+     * The first view type assigned by registry
+     */
+    public static final int FIRST_VIEW_TYPE = 1 << 20;
+
+    private static final ViewTypeRegistry INSTANCE = new ViewTypeRegistry();
+
+    private final Map<Object, Integer> viewTypes = new HashMap<>();
+    /**
+     * Map for view type to the largest pool size declared for it
+     */
+    private final IntIntMap poolSizes = new IntIntMap();
+    private int nextViewType = FIRST_VIEW_TYPE;
+
+    private ViewTypeRegistry() {
+    }
+
+    @NonNull
+    public static ViewTypeRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns view type of delegate key, registering it on first call
+     *
+     * @param key view type key
+     * @return view type
+     */
+    public synchronized int getViewType(@NonNull Object key) {
+        Integer viewType = viewTypes.get(key);
+        if (viewType == null) {
+            viewType = newViewType();
+            viewTypes.put(key, viewType);
+        }
+        return viewType;
+    }
+
+    /**
+     * Returns view type of delegate. Key of delegate is its class unless delegate implements
+     * {@link KeyedViewHolderDelegate}.
+     *
+     * @param delegate delegate
+     * @return view type
+     */
+    public int getViewType(@NonNull ViewHolderDelegate<?, ?> delegate) {
+        return getViewType(delegate, 0);
+    }
+
+    /**
+     * Returns view type of delegate with the same key as ordinal number of other delegates
+     * in the same manager, ordinal 0 gives the same view type as {@link #getViewType(ViewHolderDelegate)}
+     *
+     * @param delegate delegate
+     * @param ordinal number of delegates with the same key added before
+     * @return view type
+     */
+    public int getViewType(@NonNull ViewHolderDelegate<?, ?> delegate, int ordinal) {
+        Object key = delegate instanceof KeyedViewHolderDelegate
+                ? ((KeyedViewHolderDelegate<?, ?>) delegate).getViewTypeKey() : delegate.getClass();
+        return getViewType(ordinal == 0 ? key : new OrdinalKey(key, ordinal));
+    }
+
+    /**
+     * Returns view type not associated with any key. View type is never released, so it is
+     * intended for view types used during whole process lifetime.
+     *
+     * @return unique view type
+     */
+    public synchronized int newViewType() {
+        if (nextViewType == ViewHolderDelegateManager.FALLBACK_DELEGATE_VIEW_TYPE) {
+            throw new IllegalStateException("No more free view types left in registry");
+        }
+        return nextViewType++;
+    }
+
+    /**
+     * Returns the largest pool size declared for view type
+     *
+     * @param viewType view type
+     * @return pool size or -1 if no pool size was declared
+     */
+    public synchronized int getPoolSize(int viewType) {
+        return poolSizes.get(viewType, -1);
+    }
+
+    /**
+     * Set maximum number of recycled view holders of pool for all view types with declared pool
+     * sizes
+     *
+     * @param pool pool shared by RecyclerViews
+     */
+    public synchronized void configurePool(@NonNull RecyclerView.RecycledViewPool pool) {
+        for (int viewType : poolSizes.keys()) {
+            pool.setMaxRecycledViews(viewType, poolSizes.get(viewType, 0));
+        }
+    }
+
+    /**
+     * Creates pool to be shared by RecyclerViews configured with pool sizes declared so far
+     *
+     * @return new pool
+     */
+    @NonNull
+    public RecyclerView.RecycledViewPool createRecycledViewPool() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        configurePool(pool);
+        return pool;
+    }
+
+    synchronized void registerPoolSize(int viewType, int poolSize) {
+        if (poolSize > poolSizes.get(viewType, 0)) {
+            poolSizes.put(viewType, poolSize);
+        }
+    }
+
+    private static final class OrdinalKey {
+        private final Object key;
+        private final int ordinal;
+
+        OrdinalKey(Object key, int ordinal) {
+            this.key = key;
+            this.ordinal = ordinal;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof OrdinalKey)) {
+                return false;
+            }
+            OrdinalKey that = (OrdinalKey) o;
+            return ordinal == that.ordinal && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + ordinal;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.alapshin.genericrecyclerview;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Resolver of item view types
+ *
+ * @param <T> item type
+ * @see ViewTypeColumnProvider
+ */
+public interface ViewTypeResolver<T extends Item> {
+    /**
+     * Returns view type of item.
+     *
+     * @param item item
+     * @return view type
+     */
+    int getItemViewType(@NonNull T item);
+}
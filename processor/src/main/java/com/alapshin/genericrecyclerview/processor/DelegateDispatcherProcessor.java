@@ -0,0 +1,472 @@
+package com.alapshin.genericrecyclerview.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates {@code ViewHolderDelegateManager} subclasses for adapters annotated with
+ * {@code DelegateDispatcher}.
+ * <p>
+ * Library classes are referenced by name, so processor doesn't depend on Android library.
+ * </p>
+ */
+@SupportedAnnotationTypes(DelegateDispatcherProcessor.DISPATCHER_ANNOTATION)
+public class DelegateDispatcherProcessor extends AbstractProcessor {
+    static final String DISPATCHER_ANNOTATION = "com.alapshin.genericrecyclerview.DelegateDispatcher";
+
+    private static final String DELEGATE = "com.alapshin.genericrecyclerview.ViewHolderDelegate";
+    private static final String PAYLOAD_DELEGATE = "com.alapshin.genericrecyclerview.PayloadViewHolderDelegate";
+    private static final String ITEM_TYPE_DELEGATE = "com.alapshin.genericrecyclerview.ItemTypeViewHolderDelegate";
+    private static final String ITEM_TYPES = "com.alapshin.genericrecyclerview.ItemTypes";
+    private static final String MANAGER = "com.alapshin.genericrecyclerview.ViewHolderDelegateManager";
+    private static final String REGISTRY = "com.alapshin.genericrecyclerview.ViewTypeRegistry";
+    private static final String ADAPTER = "android.support.v7.widget.RecyclerView.Adapter";
+    private static final String DISPATCHER_SUFFIX = "Dispatcher";
+
+    private Types types;
+    private Elements elements;
+    private Filer filer;
+    private Messager messager;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        types = processingEnv.getTypeUtils();
+        elements = processingEnv.getElementUtils();
+        filer = processingEnv.getFiler();
+        messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                try {
+                    generate(element);
+                } catch (ProcessingException e) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+                } catch (IOException e) {
+                    messager.printMessage(Diagnostic.Kind.ERROR,
+                            "Unable to write delegate dispatcher: " + e.getMessage(), element);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void generate(Element element) throws ProcessingException, IOException {
+        if (element.getKind() != ElementKind.CLASS) {
+            throw new ProcessingException(element, "@DelegateDispatcher can be applied only to classes");
+        }
+        TypeElement adapterElement = (TypeElement) element;
+        DeclaredType adapterType = findSupertype(adapterElement.asType(), ADAPTER);
+        if (adapterType == null) {
+            throw new ProcessingException(element, "@DelegateDispatcher class must extend " + ADAPTER);
+        }
+        TypeMirror holderType = adapterType.getTypeArguments().get(0);
+        if (holderType.getKind() != TypeKind.DECLARED) {
+            throw new ProcessingException(element, "@DelegateDispatcher adapter must bind concrete view holder type");
+        }
+
+        List<DelegateInfo> delegates = new ArrayList<>();
+        Map<Integer, DelegateInfo> itemTypeDelegates = new HashMap<>();
+        for (TypeMirror delegateType : getDelegateTypes(adapterElement)) {
+            DelegateInfo delegate = createDelegateInfo(element, delegateType);
+            if (!types.isAssignable(delegate.holderType, holderType)) {
+                throw new ProcessingException(element, "View holder " + delegate.holderType + " of delegate "
+                        + delegate.type + " doesn't extend " + holderType);
+            }
+            for (DelegateInfo other : delegates) {
+                if (!types.isSameType(other.itemType, delegate.itemType)) {
+                    throw new ProcessingException(element, "Delegates " + other.type + " and " + delegate.type
+                            + " have different item types");
+                }
+                if (types.isSameType(other.type, delegate.type)) {
+                    throw new ProcessingException(element, "Delegate " + delegate.type + " is listed twice");
+                }
+            }
+            if (delegate.itemTypes != null) {
+                for (int itemType : delegate.itemTypes) {
+                    DelegateInfo other = itemTypeDelegates.put(itemType, delegate);
+                    if (other == delegate) {
+                        throw new ProcessingException(element, "Delegate " + delegate.type + " declares item type "
+                                + itemType + " twice");
+                    } else if (other != null) {
+                        throw new ProcessingException(element, "Delegates " + other.type + " and " + delegate.type
+                                + " declare the same item type " + itemType);
+                    }
+                }
+            }
+            delegates.add(delegate);
+        }
+        if (delegates.isEmpty()) {
+            throw new ProcessingException(element, "@DelegateDispatcher must list at least one delegate");
+        }
+
+        PackageElement packageElement = elements.getPackageOf(adapterElement);
+        String packageName = packageElement.getQualifiedName().toString();
+        String className = getDispatcherName(adapterElement);
+        String qualifiedName = packageElement.isUnnamed() ? className : packageName + "." + className;
+        String source = new DispatcherWriter(packageElement.isUnnamed() ? null : packageName, className,
+                adapterElement.getQualifiedName().toString(), delegates.get(0).itemType.toString(),
+                holderType.toString(), delegates).write();
+
+        Writer writer = filer.createSourceFile(qualifiedName, adapterElement).openWriter();
+        try {
+            writer.write(source);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private List<TypeMirror> getDelegateTypes(TypeElement element) {
+        List<TypeMirror> result = new ArrayList<>();
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationElement = (TypeElement) mirror.getAnnotationType().asElement();
+            if (!annotationElement.getQualifiedName().contentEquals(DISPATCHER_ANNOTATION)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : mirror.getElementValues().entrySet()) {
+                if (!entry.getKey().getSimpleName().contentEquals("value")) {
+                    continue;
+                }
+                for (Object value : (List<?>) entry.getValue().getValue()) {
+                    result.add((TypeMirror) ((AnnotationValue) value).getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    private DelegateInfo createDelegateInfo(Element element, TypeMirror type) throws ProcessingException {
+        TypeElement delegateElement = (TypeElement) types.asElement(type);
+        if (delegateElement.getKind() != ElementKind.CLASS || !delegateElement.getTypeParameters().isEmpty()) {
+            throw new ProcessingException(element, "Delegate " + type + " must be non generic class");
+        }
+        for (Element e = delegateElement; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                throw new ProcessingException(element, "Delegate " + type + " must not be private");
+            }
+        }
+
+        DeclaredType delegateType = findSupertype(type, DELEGATE);
+        if (delegateType == null) {
+            throw new ProcessingException(element, "Delegate " + type + " must implement " + DELEGATE);
+        }
+        TypeMirror itemType = delegateType.getTypeArguments().get(0);
+        TypeMirror holderType = delegateType.getTypeArguments().get(1);
+        if (itemType.getKind() != TypeKind.DECLARED || holderType.getKind() != TypeKind.DECLARED) {
+            throw new ProcessingException(element, "Delegate " + type + " must have concrete item and view holder types");
+        }
+
+        boolean hasNoArgConstructor = false;
+        if (!delegateElement.getModifiers().contains(Modifier.ABSTRACT)) {
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(delegateElement.getEnclosedElements())) {
+                if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                    hasNoArgConstructor = true;
+                }
+            }
+        }
+        int[] itemTypes = null;
+        if (findSupertype(type, ITEM_TYPE_DELEGATE) != null) {
+            itemTypes = getItemTypes(delegateElement);
+            if (itemTypes == null) {
+                throw new ProcessingException(element, "Delegate " + type + " must declare its item types with @"
+                        + ITEM_TYPES);
+            }
+        }
+        return new DelegateInfo(type, itemType, holderType, findSupertype(type, PAYLOAD_DELEGATE) != null,
+                hasNoArgConstructor, itemTypes);
+    }
+
+    /**
+     * Returns sorted item types declared by {@code ItemTypes} annotation or null if delegate isn't annotated
+     */
+    private static int[] getItemTypes(TypeElement delegateElement) {
+        for (AnnotationMirror mirror : delegateElement.getAnnotationMirrors()) {
+            TypeElement annotationElement = (TypeElement) mirror.getAnnotationType().asElement();
+            if (!annotationElement.getQualifiedName().contentEquals(ITEM_TYPES)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : mirror.getElementValues().entrySet()) {
+                if (!entry.getKey().getSimpleName().contentEquals("value")) {
+                    continue;
+                }
+                List<?> values = (List<?>) entry.getValue().getValue();
+                int[] result = new int[values.size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = (Integer) ((AnnotationValue) values.get(i)).getValue();
+                }
+                Arrays.sort(result);
+                return result;
+            }
+            return new int[0];
+        }
+        return null;
+    }
+
+    /**
+     * Returns supertype of type with given qualified name with type arguments substituted
+     */
+    private DeclaredType findSupertype(TypeMirror type, String qualifiedName) {
+        for (TypeMirror supertype : types.directSupertypes(type)) {
+            if (supertype.getKind() != TypeKind.DECLARED) {
+                continue;
+            }
+            DeclaredType declaredType = (DeclaredType) supertype;
+            if (((TypeElement) declaredType.asElement()).getQualifiedName().contentEquals(qualifiedName)) {
+                return declaredType;
+            }
+            DeclaredType result = findSupertype(supertype, qualifiedName);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns name of dispatcher class, names of nested classes are joined by underscore
+     */
+    private static String getDispatcherName(TypeElement element) {
+        String name = element.getSimpleName().toString();
+        for (Element e = element.getEnclosingElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+            name = e.getSimpleName() + "_" + name;
+        }
+        return name + DISPATCHER_SUFFIX;
+    }
+
+    static final class DelegateInfo {
+        final TypeMirror type;
+        final TypeMirror itemType;
+        final TypeMirror holderType;
+        final boolean payload;
+        final boolean hasNoArgConstructor;
+        /**
+         * Sorted declared item types of item type delegate, null for other delegates
+         */
+        final int[] itemTypes;
+
+        DelegateInfo(TypeMirror type, TypeMirror itemType, TypeMirror holderType, boolean payload,
+                     boolean hasNoArgConstructor, int[] itemTypes) {
+            this.type = type;
+            this.itemType = itemType;
+            this.holderType = holderType;
+            this.payload = payload;
+            this.hasNoArgConstructor = hasNoArgConstructor;
+            this.itemTypes = itemTypes;
+        }
+    }
+
+    /**
+     * Writer of dispatcher source code
+     */
+    static final class DispatcherWriter {
+        private final String packageName;
+        private final String className;
+        private final String adapterName;
+        private final String itemType;
+        private final String holderType;
+        private final List<DelegateInfo> delegates;
+        private final StringBuilder out = new StringBuilder();
+
+        DispatcherWriter(String packageName, String className, String adapterName, String itemType,
+                         String holderType, List<DelegateInfo> delegates) {
+            this.packageName = packageName;
+            this.className = className;
+            this.adapterName = adapterName;
+            this.itemType = itemType;
+            this.holderType = holderType;
+            this.delegates = delegates;
+        }
+
+        String write() {
+            if (packageName != null) {
+                line("package " + packageName + ";");
+                line("");
+            }
+            line("/**");
+            line(" * Dispatcher of {@link " + adapterName + "} delegates.");
+            line(" * Generated by " + DelegateDispatcherProcessor.class.getSimpleName() + ", do not modify.");
+            line(" */");
+            line("public final class " + className + " extends " + MANAGER + "<" + itemType + ", " + holderType
+                    + "> {");
+            for (int i = 0; i < delegates.size(); i++) {
+                line("    private final " + delegates.get(i).type + " delegate" + i + ";");
+                line("    private final int viewType" + i + ";");
+            }
+            line("");
+            writeConstructors();
+            writeItemViewType();
+            writeCreateViewHolder();
+            writeBindViewHolder();
+            line("}");
+            return out.toString();
+        }
+
+        private void writeConstructors() {
+            boolean hasNoArgConstructors = true;
+            StringBuilder parameters = new StringBuilder();
+            StringBuilder arguments = new StringBuilder();
+            for (int i = 0; i < delegates.size(); i++) {
+                DelegateInfo delegate = delegates.get(i);
+                hasNoArgConstructors &= delegate.hasNoArgConstructor;
+                if (i > 0) {
+                    parameters.append(", ");
+                    arguments.append(", ");
+                }
+                parameters.append(delegate.type).append(" delegate").append(i);
+                arguments.append("new ").append(delegate.type).append("()");
+            }
+
+            if (hasNoArgConstructors) {
+                line("    public " + className + "() {");
+                line("        this(" + arguments + ");");
+                line("    }");
+                line("");
+            }
+            line("    public " + className + "(" + parameters + ") {");
+            line("        " + REGISTRY + " registry = " + REGISTRY + ".getInstance();");
+            for (int i = 0; i < delegates.size(); i++) {
+                line("        this.delegate" + i + " = delegate" + i + ";");
+                line("        this.viewType" + i + " = registry.getViewType(delegate" + i + ");");
+                int[] itemTypes = delegates.get(i).itemTypes;
+                if (itemTypes != null) {
+                    StringBuilder values = new StringBuilder();
+                    for (int itemType : itemTypes) {
+                        values.append(", ").append(itemType);
+                    }
+                    line("        checkItemTypes(delegate" + i + values + ");");
+                }
+                line("        addDelegate(delegate" + i + ", viewType" + i + ");");
+            }
+            line("    }");
+            line("");
+        }
+
+        private void writeItemViewType() {
+            line("    @Override");
+            line("    protected int dispatchItemViewType(" + itemType + " item) {");
+            // Item type delegates are found by switch, other delegates are checked in declaration order
+            boolean hasItemTypes = false;
+            for (int i = 0; i < delegates.size(); i++) {
+                int[] itemTypes = delegates.get(i).itemTypes;
+                if (itemTypes == null || itemTypes.length == 0) {
+                    continue;
+                }
+                if (!hasItemTypes) {
+                    hasItemTypes = true;
+                    line("        switch (item.type()) {");
+                }
+                for (int itemType : itemTypes) {
+                    line("            case " + itemType + ":");
+                }
+                line("                return viewType" + i + ";");
+            }
+            if (hasItemTypes) {
+                line("            default:");
+                line("                break;");
+                line("        }");
+            }
+            for (int i = 0; i < delegates.size(); i++) {
+                if (delegates.get(i).itemTypes != null) {
+                    continue;
+                }
+                line("        if (delegate" + i + ".isForViewType(item)) {");
+                line("            return viewType" + i + ";");
+                line("        }");
+            }
+            line("        return super.dispatchItemViewType(item);");
+            line("    }");
+            line("");
+        }
+
+        private void writeCreateViewHolder() {
+            line("    @Override");
+            line("    protected " + holderType + " dispatchCreateViewHolder(android.view.ViewGroup parent, int viewType) {");
+            for (int i = 0; i < delegates.size(); i++) {
+                line("        if (viewType == viewType" + i + ") {");
+                line("            return delegate" + i + ".onCreateViewHolder(parent);");
+                line("        }");
+            }
+            line("        return super.dispatchCreateViewHolder(parent, viewType);");
+            line("    }");
+            line("");
+        }
+
+        private void writeBindViewHolder() {
+            line("    @Override");
+            line("    @SuppressWarnings(\"unchecked\")");
+            line("    protected void dispatchBindViewHolder(" + holderType + " viewHolder, " + itemType
+                    + " item, java.util.List<java.lang.Object> payloads) {");
+            line("        int viewType = viewHolder.getItemViewType();");
+            for (int i = 0; i < delegates.size(); i++) {
+                DelegateInfo delegate = delegates.get(i);
+                String holder = "(" + delegate.holderType + ") viewHolder";
+                line("        if (viewType == viewType" + i + ") {");
+                if (delegate.payload) {
+                    line("            if (payloads.isEmpty()) {");
+                    line("                delegate" + i + ".onBindViewHolder(" + holder + ", item);");
+                    line("            } else {");
+                    line("                delegate" + i + ".onBindViewHolder(" + holder + ", item, payloads);");
+                    line("            }");
+                } else {
+                    line("            delegate" + i + ".onBindViewHolder(" + holder + ", item);");
+                }
+                line("            return;");
+                line("        }");
+            }
+            line("        super.dispatchBindViewHolder(viewHolder, item, payloads);");
+            line("    }");
+        }
+
+        private void line(String line) {
+            out.append(line).append('\n');
+        }
+    }
+
+    static final class ProcessingException extends Exception {
+        final Element element;
+
+        ProcessingException(Element element, String message) {
+            super(message);
+            this.element = element;
+        }
+    }
+}
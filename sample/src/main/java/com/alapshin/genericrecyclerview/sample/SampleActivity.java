@@ -20,7 +20,7 @@ public class SampleActivity extends AppCompatActivity {
     SelectionManager selectionManager = new DefaultSelectionManager();
     ItemProvider<SampleItem> itemProvider = new DefaultItemProvider<>();
     ViewHolderDelegateManager<SampleItem, SampleAdapter.SampleHolder> delegateManager =
-            new ViewHolderDelegateManager<>();
+            new SampleAdapterDispatcher();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -34,8 +34,6 @@ public class SampleActivity extends AppCompatActivity {
         });
 
         recyclerAdapter.setRecyclerDelegateManager(delegateManager);
-        delegateManager.addDelegate(new SampleAdapter.SampleDelegateRed());
-        delegateManager.addDelegate(new SampleAdapter.SampleDelegateBlue());
 
         recyclerAdapter.setSelectionManager(selectionManager);
         selectionManager.setAdapter(recyclerAdapter);
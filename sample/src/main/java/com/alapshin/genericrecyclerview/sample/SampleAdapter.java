@@ -7,12 +7,15 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.CheckBox;
 
+import com.alapshin.genericrecyclerview.DelegateDispatcher;
 import com.alapshin.genericrecyclerview.ItemProvider;
-import com.alapshin.genericrecyclerview.ViewHolderDelegate;
+import com.alapshin.genericrecyclerview.ItemTypeViewHolderDelegate;
+import com.alapshin.genericrecyclerview.ItemTypes;
 import com.alapshin.genericrecyclerview.DefaultViewHolder;
 import com.alapshin.genericrecyclerview.ViewHolderDelegateManager;
 import com.alapshin.genericrecyclerview.SelectionManager;
 
+@DelegateDispatcher({SampleAdapter.SampleDelegateRed.class, SampleAdapter.SampleDelegateBlue.class})
 public class SampleAdapter extends RecyclerView.Adapter<SampleAdapter.SampleHolder> {
     interface OnItemSelectedListener<T> {
         void onItemSelected(int position, T item);
@@ -112,12 +115,19 @@ public class SampleAdapter extends RecyclerView.Adapter<SampleAdapter.SampleHold
         }
     }
 
-    static class SampleDelegateRed implements ViewHolderDelegate<SampleItem, SampleHolderRed> {
+    @ItemTypes(1)
+    static class SampleDelegateRed implements ItemTypeViewHolderDelegate<SampleItem, SampleHolderRed> {
         @Override
         public boolean isForViewType(@NonNull SampleItem item) {
             return item.type() == 1;
         }
 
+        @NonNull
+        @Override
+        public int[] getItemTypes() {
+            return new int[] {1};
+        }
+
         @Override
         public void onBindViewHolder(@NonNull SampleHolderRed holder, SampleItem item) {
             holder.onBindViewHolder(item);
@@ -143,12 +153,19 @@ public class SampleAdapter extends RecyclerView.Adapter<SampleAdapter.SampleHold
         }
     }
 
-    static class SampleDelegateBlue implements ViewHolderDelegate<SampleItem, SampleHolderBlue> {
+    @ItemTypes(2)
+    static class SampleDelegateBlue implements ItemTypeViewHolderDelegate<SampleItem, SampleHolderBlue> {
         @Override
         public boolean isForViewType(@NonNull SampleItem item) {
             return item.type() == 2;
         }
 
+        @NonNull
+        @Override
+        public int[] getItemTypes() {
+            return new int[] {2};
+        }
+
         @Override
         public void onBindViewHolder(@NonNull SampleHolderBlue holder, SampleItem item) {
             holder.onBindViewHolder(item);